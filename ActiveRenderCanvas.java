@@ -0,0 +1,84 @@
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+// ActiveRenderCanvas is the surface for RenderMode.ACTIVE.
+// Frames are drawn straight into a BufferStrategy (accelerated VolatileImage back buffers,
+// page flipping where the platform supports it) by whichever thread calls render(),
+// normally the game loop, so nothing waits on Swing's repaint coalescing.
+public class ActiveRenderCanvas extends Canvas {
+
+    private static final long serialVersionUID = 1L;
+    private final GameRenderer renderer;
+    private final long tickNanos;
+    private volatile FrameSnapshot lastFrame;
+
+    public ActiveRenderCanvas(GameRenderer renderer, int ticksPerSecond) {
+        this.renderer = renderer;
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.setPreferredSize(new Dimension(GamePanel.PANEL_WIDTH, GamePanel.PANEL_HEIGHT));
+        this.setBackground(Color.BLACK);
+        this.setFocusable(true);
+    }
+
+    // Draws and presents one frame. Does nothing until the canvas is on screen.
+    public synchronized void render(FrameSnapshot frame) {
+        lastFrame = frame;
+        if (!isDisplayable() || getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        // Looked up every frame: AWT discards the strategy when the peer is recreated
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            strategy = createStrategy();
+        }
+
+        double alpha = 1.0;
+        if (frame.state == GamePanel.GameState.PLAYING) {
+            alpha = Math.min(1.0, Math.max(0.0, (System.nanoTime() - frame.tickTime) / (double) tickNanos));
+        }
+
+        // A VolatileImage back buffer can be lost at any time (display mode change,
+        // screen lock), in which case the frame is simply drawn again.
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    g2d.setColor(Color.BLACK);
+                    g2d.fillRect(0, 0, getWidth(), getHeight());
+                    renderer.render(g2d, frame, alpha);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private BufferStrategy createStrategy() {
+        BufferCapabilities flipping = new BufferCapabilities(
+                new ImageCapabilities(true), new ImageCapabilities(true),
+                BufferCapabilities.FlipContents.UNDEFINED);
+        try {
+            createBufferStrategy(2, flipping);
+        } catch (AWTException e) {
+            // No page flipping in windowed mode on this pipeline; let AWT pick blitting
+            createBufferStrategy(2);
+        }
+        return getBufferStrategy();
+    }
+
+    // Called by AWT when the canvas is exposed, e.g. while the game is paused.
+    @Override
+    public void paint(Graphics g) {
+        FrameSnapshot frame = lastFrame;
+        if (frame != null) {
+            render(frame);
+        }
+    }
+
+    @Override
+    public void update(Graphics g) {
+        paint(g);
+    }
+}
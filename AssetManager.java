@@ -0,0 +1,178 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// AssetManager loads the game's assets on background threads, so the EDT never waits on
+// disk or decoding. Images arrive decoded into the screen's native format, ready to draw;
+// fonts arrive with their glyphs already rasterized once; levels arrive decoded into a
+// fresh BrickField. Images and fonts are cached, least recently used first out once the
+// cache holds more than its byte budget. Every request is answered with a future; asking
+// again for something already loading joins the same load.
+public final class AssetManager {
+
+    static final long DEFAULT_CACHE_BYTES = Long.getLong("breakout.assetCacheBytes", 64L << 20);
+    static final int LOADER_THREADS = 2;
+    private static final long FONT_BYTES = 64 << 10; // Rough cost of a font's glyph cache
+    private static final String FONT_SAMPLE = "0123456789:ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz !<->";
+
+    private final long maxBytes;
+    private final ExecutorService loader;
+
+    // Least recently used first. Entries still loading weigh 0 until they finish.
+    private final Map<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    private static final class Entry {
+        final CompletableFuture<Object> value = new CompletableFuture<>();
+        long bytes;
+    }
+
+    public AssetManager(long maxBytes) {
+        this.maxBytes = maxBytes;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(LOADER_THREADS, LOADER_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "asset-loader");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1); // Behind the game loop and the EDT
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true); // No idle threads once everything is loaded
+        this.loader = executor;
+    }
+
+    // An image file, decoded and converted to the screen's format.
+    public CompletableFuture<BufferedImage> image(String path) {
+        return cached("image:" + path, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                BufferedImage decoded = ImageIO.read(new File(path));
+                if (decoded == null) {
+                    throw new IOException(path + " is not an image ImageIO can read");
+                }
+                return toCompatible(decoded, decoded.getWidth(), decoded.getHeight());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load " + path, e);
+            }
+        }, loader), image -> (long) image.getWidth() * image.getHeight() * 4);
+    }
+
+    // An image file scaled to width x height with smooth filtering. The original is
+    // loaded through image(path), so both share one read of the file.
+    public CompletableFuture<BufferedImage> scaledImage(String path, int width, int height) {
+        String key = "image:" + path + "@" + width + "x" + height;
+        return cached(key, () -> image(path).thenApplyAsync(image -> toCompatible(image, width, height), loader),
+                image -> (long) width * height * 4);
+    }
+
+    // A font, returned once its common glyphs have been laid out and rasterized, which is
+    // what makes the first frame to use a font slow.
+    public CompletableFuture<Font> font(Font font) {
+        String key = "font:" + font.getName() + "-" + font.getStyle() + "-" + font.getSize2D();
+        return cached(key, () -> CompletableFuture.supplyAsync(() -> {
+            BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scratch.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setFont(font);
+                g.drawString(FONT_SAMPLE, 0, 0);
+                font.createGlyphVector(new FontRenderContext(null, true, true), FONT_SAMPLE);
+            } finally {
+                g.dispose();
+            }
+            return font;
+        }, loader), f -> FONT_BYTES);
+    }
+
+    // Decodes a level's bricks into a new field. Not cached: the simulation takes
+    // ownership of the field, so every game needs its own.
+    public CompletableFuture<BrickField> decode(Level level) {
+        return CompletableFuture.supplyAsync(level::createField, loader);
+    }
+
+    // Bytes currently held by the cache.
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    // Returns the cached or loading value for key, or starts loading it. Failed loads are
+    // dropped from the cache, so the next request tries again.
+    @SuppressWarnings("unchecked")
+    private synchronized <T> CompletableFuture<T> cached(String key, Supplier<CompletableFuture<T>> load,
+                                                         Weigher<T> weigher) {
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            Entry created = new Entry();
+            cache.put(key, created);
+            load.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    failed(key, created);
+                    created.value.completeExceptionally(error);
+                } else {
+                    loaded(key, created, weigher.weigh(value));
+                    created.value.complete(value);
+                }
+            });
+            entry = created;
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) entry.value;
+    }
+
+    private synchronized void loaded(String key, Entry entry, long bytes) {
+        if (cache.get(key) != entry) {
+            return; // Evicted while loading
+        }
+        entry.bytes = bytes;
+        cachedBytes += bytes;
+        Iterator<Map.Entry<String, Entry>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            if (evicted != entry && evicted.value.isDone()) {
+                cachedBytes -= evicted.bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    private synchronized void failed(String key, Entry entry) {
+        cache.remove(key, entry);
+    }
+
+    // Copies an image into one the screen can draw without conversion, scaling it to
+    // width x height on the way. Headless, a plain ARGB image does.
+    private static BufferedImage toCompatible(BufferedImage source, int width, int height) {
+        BufferedImage target;
+        if (GraphicsEnvironment.isHeadless()) {
+            target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            target = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(width, height, source.getTransparency());
+        }
+        Graphics2D g = target.createGraphics();
+        try {
+            if (width != source.getWidth() || height != source.getHeight()) {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            }
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private interface Weigher<T> {
+        long weigh(T value);
+    }
+}
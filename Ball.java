@@ -3,10 +3,13 @@ import java.awt.geom.Rectangle2D;
 
 public class Ball {
 
+    static final double START_DX = 3.0;
+    static final double START_DY = -3.0;
+
     private double x, y;
     final int diameter;
-    private double dx = 3.0; // Horizontal velocity
-    private double dy = -3.0; // Vertical velocity
+    private double dx = START_DX; // Horizontal velocity
+    private double dy = START_DY; // Vertical velocity
 
     public Ball(int x, int y, int diameter) {
         this.x = x;
@@ -15,15 +18,26 @@ public class Ball {
     }
 
     public void move() {
-        x += dx;
-        y += dy;
+        advance(1.0);
+    }
+
+    // Moves the ball by a fraction of one tick's velocity.
+    public void advance(double fraction) {
+        x += dx * fraction;
+        y += dy * fraction;
     }
 
     public void draw(Graphics2D g2d) {
+        draw(g2d, (int) x, (int) y, diameter);
+    }
+
+    // Draws a ball at the given position, used when rendering from a FrameSnapshot.
+    static void draw(Graphics2D g2d, int x, int y, int diameter) {
         g2d.setColor(Color.YELLOW);
-        g2d.fillOval((int) x, (int) y, diameter, diameter);
+        g2d.fillOval(x, y, diameter, diameter);
     }
 
+    // Allocates; the simulation sweeps the ball with SweptCollision instead.
     public Rectangle2D.Double getBounds() {
         return new Rectangle2D.Double(x, y, diameter, diameter);
     }
@@ -36,6 +50,25 @@ public class Ball {
         dy = -dy;
     }
 
+    // Bounces off a surface on the given axis so the ball heads away from (centerX, centerY).
+    // Unlike a plain reverse, this cannot send the ball back into what it just hit.
+    public void bounceAwayFrom(boolean xAxis, double centerX, double centerY) {
+        double half = diameter / 2.0;
+        if (xAxis) {
+            dx = x + half < centerX ? -Math.abs(dx) : Math.abs(dx);
+        } else {
+            dy = y + half < centerY ? -Math.abs(dy) : Math.abs(dy);
+        }
+    }
+
+    public double getDx() {
+        return dx;
+    }
+
+    public double getDy() {
+        return dy;
+    }
+
     public int getX() {
         return (int) x;
     }
@@ -44,10 +77,26 @@ public class Ball {
         return (int) y;
     }
 
+    public double getExactX() {
+        return x;
+    }
+
+    public double getExactY() {
+        return y;
+    }
+
     public void setY(int newY) {
         this.y = newY;
     }
 
+    // Moves the ball and sets its velocity, e.g. when an extra ball takes over as the main one.
+    public void set(double x, double y, double dx, double dy) {
+        this.x = x;
+        this.y = y;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
     public void increaseSpeed(double amount) {
         double currentSpeed = Math.sqrt(dx * dx + dy * dy);
         double newSpeed = currentSpeed + amount;
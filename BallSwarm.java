@@ -0,0 +1,80 @@
+// BallSwarm holds the extra balls of multi-ball mode as parallel primitive arrays
+// (position and velocity), so hundreds of balls are stepped in one tight loop instead
+// of one Ball object each. Balls are referred to by index; removing one moves the last
+// ball into its slot, so indices are only stable until the next removal.
+public class BallSwarm {
+
+    final int diameter;
+    final double[] x, y;
+    final double[] dx, dy;
+    private int count;
+
+    public BallSwarm(int capacity, int diameter) {
+        this.diameter = diameter;
+        x = new double[capacity];
+        y = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+    }
+
+    // Adds a ball and returns false if the swarm is already full.
+    public boolean add(double x, double y, double dx, double dy) {
+        if (count == this.x.length) {
+            return false;
+        }
+        this.x[count] = x;
+        this.y[count] = y;
+        this.dx[count] = dx;
+        this.dy[count] = dy;
+        count++;
+        return true;
+    }
+
+    public void remove(int i) {
+        count--;
+        x[i] = x[count];
+        y[i] = y[count];
+        dx[i] = dx[count];
+        dy[i] = dy[count];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    // Same rule as Ball.bounceAwayFrom, for ball i.
+    void bounceAwayFrom(int i, boolean xAxis, double centerX, double centerY) {
+        double half = diameter / 2.0;
+        if (xAxis) {
+            dx[i] = x[i] + half < centerX ? -Math.abs(dx[i]) : Math.abs(dx[i]);
+        } else {
+            dy[i] = y[i] + half < centerY ? -Math.abs(dy[i]) : Math.abs(dy[i]);
+        }
+    }
+
+    // Same rule as Ball.increaseSpeed, for ball i.
+    void increaseSpeed(int i, double amount) {
+        double currentSpeed = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+        double scale = (currentSpeed + amount) / currentSpeed;
+        dx[i] *= scale;
+        dy[i] *= scale;
+    }
+
+    // Ball positions as (x, y) int pairs, for handing to the renderer.
+    int[] copyPositions() {
+        int[] positions = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            positions[i * 2] = (int) x[i];
+            positions[i * 2 + 1] = (int) y[i];
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,225 @@
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Random;
+
+// BrickField stores a level's bricks as primitive arrays instead of Brick objects:
+// interleaved x/y/width/height ints, packed ARGB colors, type and hit point bytes and
+// one alive bit per brick.
+// Collision and rendering code scan these arrays directly, which keeps large levels
+// small in memory and cache-friendly. Bricks are referred to by index.
+public class BrickField {
+
+    private static final int STRIDE = 4; // x, y, width, height
+
+    // Brick types
+    static final int NORMAL = 0; // Breaks on its first hit
+    static final int TOUGH = 1; // Takes several hits
+    static final int UNBREAKABLE = 2; // Never breaks, and isn't needed to win
+
+    private static final Color TOUGH_MARK = new Color(255, 255, 255, 140);
+    private static final Color UNBREAKABLE_MARK = new Color(40, 40, 40);
+
+    private final int[] bounds;
+    private final int[] colors;
+    private final byte[] types;
+    private final byte[] hitPoints; // Hits left before the brick breaks
+    private final byte[] startHitPoints; // As laid out, for restore()
+    private int count;
+
+    // One bit per brick, set while the brick is alive. Copy-on-write: destroy() replaces the
+    // array, so an array handed out by aliveBits() never changes and can be shared with
+    // published frames.
+    private long[] alive;
+    private int liveCount; // Breakable bricks still alive
+
+    public BrickField(int capacity) {
+        bounds = new int[capacity * STRIDE];
+        colors = new int[capacity];
+        types = new byte[capacity];
+        hitPoints = new byte[capacity];
+        startHitPoints = new byte[capacity];
+        alive = new long[(capacity + 63) >>> 6];
+    }
+
+    // Lays out rows x cols bricks of one size on a regular grid starting at (startX, startY),
+    // with random opaque colors drawn from the given RNG.
+    public static BrickField grid(int rows, int cols, int startX, int startY,
+                                  int width, int height, int gap, Random random) {
+        BrickField field = new BrickField(rows * cols);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int x = startX + col * (width + gap);
+                int y = startY + row * (height + gap);
+                int rgb = (random.nextInt(255) << 16) | (random.nextInt(255) << 8) | random.nextInt(255);
+                field.add(x, y, width, height, 0xFF000000 | rgb);
+            }
+        }
+        return field;
+    }
+
+    // Appends a live normal brick and returns its index.
+    public int add(int x, int y, int width, int height, int argb) {
+        return add(x, y, width, height, argb, NORMAL, 1);
+    }
+
+    // Appends a live brick of the given type, which breaks after hitPoints hits (1..127;
+    // ignored for unbreakable bricks), and returns its index.
+    public int add(int x, int y, int width, int height, int argb, int type, int hitPoints) {
+        if (count == colors.length) {
+            throw new IllegalStateException("BrickField is full (" + count + " bricks)");
+        }
+        int i = count++;
+        bounds[i * STRIDE] = x;
+        bounds[i * STRIDE + 1] = y;
+        bounds[i * STRIDE + 2] = width;
+        bounds[i * STRIDE + 3] = height;
+        colors[i] = argb;
+        types[i] = (byte) type;
+        this.hitPoints[i] = (byte) Math.max(1, Math.min(127, hitPoints));
+        startHitPoints[i] = this.hitPoints[i];
+        alive[i >>> 6] |= 1L << i;
+        if (type != UNBREAKABLE) {
+            liveCount++;
+        }
+        return i;
+    }
+
+    // Hits brick i once. Returns true if that broke it; tough bricks need several hits
+    // and unbreakable ones never break.
+    public boolean hit(int i) {
+        if (types[i] == UNBREAKABLE || !isAlive(alive, i)) {
+            return false;
+        }
+        if (--hitPoints[i] > 0) {
+            return false;
+        }
+        return destroy(i);
+    }
+
+    // Marks a brick as destroyed, whatever its type. Returns false if it already was.
+    public boolean destroy(int i) {
+        if (!isAlive(alive, i)) {
+            return false;
+        }
+        long[] next = alive.clone();
+        next[i >>> 6] &= ~(1L << i);
+        alive = next;
+        if (types[i] != UNBREAKABLE) {
+            liveCount--;
+        }
+        return true;
+    }
+
+    // Puts every brick back as laid out: alive, at full hit points. Lets a level be played
+    // again without decoding or allocating it anew (only the alive bits are replaced).
+    public void restore() {
+        long[] next = new long[alive.length];
+        for (int i = 0; i < count; i++) {
+            next[i >>> 6] |= 1L << i;
+        }
+        System.arraycopy(startHitPoints, 0, hitPoints, 0, count);
+        setAlive(next);
+    }
+
+    // Puts the bricks into a saved state: alive bits as from aliveBits(), hit points as
+    // from copyHitPoints(). Both must come from a field with the same layout.
+    public void restore(long[] aliveBits, byte[] savedHitPoints) {
+        if (aliveBits.length != alive.length || savedHitPoints.length != count) {
+            throw new IllegalArgumentException("Saved bricks don't match this layout");
+        }
+        System.arraycopy(savedHitPoints, 0, hitPoints, 0, count);
+        setAlive(aliveBits.clone());
+    }
+
+    // Copies which bricks are alive and their hit points from a field with the same layout.
+    public void copyStateFrom(BrickField other) {
+        if (other.count != count) {
+            throw new IllegalArgumentException("Bricks don't match this layout");
+        }
+        System.arraycopy(other.hitPoints, 0, hitPoints, 0, count);
+        alive = other.alive; // Copy-on-write, so sharing is safe
+        liveCount = other.liveCount;
+    }
+
+    public byte[] copyHitPoints() {
+        return Arrays.copyOf(hitPoints, count);
+    }
+
+    private void setAlive(long[] bits) {
+        int live = 0;
+        for (int i = 0; i < count; i++) {
+            if (types[i] != UNBREAKABLE && isAlive(bits, i)) {
+                live++;
+            }
+        }
+        alive = bits;
+        liveCount = live;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Breakable bricks left; the level is won when this reaches 0.
+    public int liveCount() {
+        return liveCount;
+    }
+
+    public boolean isAlive(int i) {
+        return isAlive(alive, i);
+    }
+
+    // Current alive bits. Never modified after being returned.
+    public long[] aliveBits() {
+        return alive;
+    }
+
+    public static boolean isAlive(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public int getX(int i) {
+        return bounds[i * STRIDE];
+    }
+
+    public int getY(int i) {
+        return bounds[i * STRIDE + 1];
+    }
+
+    public int getWidth(int i) {
+        return bounds[i * STRIDE + 2];
+    }
+
+    public int getHeight(int i) {
+        return bounds[i * STRIDE + 3];
+    }
+
+    public int getColor(int i) {
+        return colors[i];
+    }
+
+    public int getType(int i) {
+        return types[i];
+    }
+
+    public int getHitPoints(int i) {
+        return hitPoints[i];
+    }
+
+    // Draws brick i the way Brick.draw does: filled with its color, outlined in black.
+    // Tough bricks get an inner frame and unbreakable ones a thick dark border.
+    public void paint(Graphics2D g2d, int i) {
+        int x = getX(i), y = getY(i), width = getWidth(i), height = getHeight(i);
+        g2d.setColor(new Color(colors[i], true));
+        g2d.fillRect(x, y, width, height);
+        if (types[i] == TOUGH && width > 8 && height > 8) {
+            g2d.setColor(TOUGH_MARK);
+            g2d.drawRect(x + 3, y + 3, width - 6, height - 6);
+        } else if (types[i] == UNBREAKABLE && width > 4 && height > 4) {
+            g2d.setColor(UNBREAKABLE_MARK);
+            g2d.drawRect(x + 1, y + 1, width - 2, height - 2);
+        }
+        g2d.setColor(Color.BLACK);
+        g2d.drawRect(x, y, width, height);
+    }
+}
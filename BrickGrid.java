@@ -0,0 +1,123 @@
+// BrickGrid is a uniform-grid spatial index over a brick layout.
+// Each cell lists the bricks overlapping it, so finding the bricks near the ball only
+// looks at the few cells under its bounds instead of scanning every brick.
+// The layout is fixed once built; destroyed bricks stay indexed and are skipped by the caller.
+public class BrickGrid {
+
+    private final int originX, originY;
+    private final int cellWidth, cellHeight;
+    private final int cols, rows;
+
+    // Compressed cell lists: the bricks in cell c are cellItems[cellStart[c] .. cellStart[c + 1]).
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    // cellWidth/cellHeight are normally the brick pitch (size plus gap), giving one brick per cell.
+    public BrickGrid(BrickField bricks, int cellWidth, int cellHeight) {
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < bricks.size(); i++) {
+            minX = Math.min(minX, bricks.getX(i));
+            minY = Math.min(minY, bricks.getY(i));
+            maxX = Math.max(maxX, bricks.getX(i) + bricks.getWidth(i));
+            maxY = Math.max(maxY, bricks.getY(i) + bricks.getHeight(i));
+        }
+        if (bricks.size() == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.cols = Math.max(1, (maxX - minX + cellWidth - 1) / cellWidth);
+        this.rows = Math.max(1, (maxY - minY + cellHeight - 1) / cellHeight);
+
+        // First pass counts bricks per cell, second pass fills them in
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < bricks.size(); i++) {
+            int x = bricks.getX(i), y = bricks.getY(i);
+            for (int row = rowOf(y); row <= rowOf(y + bricks.getHeight(i) - 1); row++) {
+                for (int col = colOf(x); col <= colOf(x + bricks.getWidth(i) - 1); col++) {
+                    cellStart[row * cols + col + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellItems = new int[cellStart[cols * rows]];
+        int[] fill = new int[cols * rows];
+        for (int i = 0; i < bricks.size(); i++) {
+            int x = bricks.getX(i), y = bricks.getY(i);
+            for (int row = rowOf(y); row <= rowOf(y + bricks.getHeight(i) - 1); row++) {
+                for (int col = colOf(x); col <= colOf(x + bricks.getWidth(i) - 1); col++) {
+                    int c = row * cols + col;
+                    cellItems[cellStart[c] + fill[c]++] = i;
+                }
+            }
+        }
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    // Writes the indices of bricks whose cells overlap the given area into out, in ascending
+    // order without duplicates, and returns how many were written. Returns -1 if they don't
+    // all fit in out; the caller must retry with a larger array rather than miss bricks.
+    public int query(double x, double y, double width, double height, int[] out) {
+        if (x + width < originX || y + height < originY
+                || x >= originX + cols * cellWidth || y >= originY + rows * cellHeight) {
+            return 0;
+        }
+        int firstCol = colOf((int) Math.floor(x));
+        int lastCol = colOf((int) Math.floor(x + width));
+        int firstRow = rowOf((int) Math.floor(y));
+        int lastRow = rowOf((int) Math.floor(y + height));
+
+        int count = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int c = row * cols + col;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    count = insertSorted(out, count, cellItems[k]);
+                    if (count < 0) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    // Candidate lists are tiny, so a sorted insert keeps the original first-index-wins order cheaply.
+    // Returns the new count, or -1 if out is full.
+    private static int insertSorted(int[] out, int count, int index) {
+        int pos = count;
+        while (pos > 0 && out[pos - 1] > index) {
+            pos--;
+        }
+        if (pos > 0 && out[pos - 1] == index) {
+            return count;
+        }
+        if (count == out.length) {
+            return -1;
+        }
+        System.arraycopy(out, pos, out, pos + 1, count - pos);
+        out[pos] = index;
+        return count + 1;
+    }
+
+    private int colOf(int x) {
+        return Math.min(cols - 1, Math.max(0, Math.floorDiv(x - originX, cellWidth)));
+    }
+
+    private int rowOf(int y) {
+        return Math.min(rows - 1, Math.max(0, Math.floorDiv(y - originY, cellHeight)));
+    }
+}
@@ -0,0 +1,97 @@
+import java.awt.*;
+import java.awt.image.VolatileImage;
+
+// BrickLayer keeps the brick field pre-rendered in an accelerated image.
+// Bricks only change when one is destroyed, so instead of filling and stroking every
+// brick each frame the layer is drawn with a single drawImage, and patched by clearing
+// the destroyed brick's area whenever the snapshot's visibility array is replaced.
+public class BrickLayer {
+
+    // Extra pixels cleared around a destroyed brick to catch its antialiased outline.
+    private static final int OUTLINE_MARGIN = 1;
+
+    private VolatileImage image;
+    private BrickField bricks; // Layout currently drawn into the image
+    private long[] brickAlive; // Alive bits currently drawn into the image
+    private boolean antialias; // Whether the image's bricks were drawn antialiased
+
+    // Brings the cached image up to date with the frame and draws it. Bricks are drawn
+    // antialiased or not as asked; changing that redraws them all.
+    public void draw(Graphics2D g2d, FrameSnapshot frame, boolean antialias) {
+        GraphicsConfiguration gc = g2d.getDeviceConfiguration();
+        do {
+            int status = image == null ? VolatileImage.IMAGE_INCOMPATIBLE : image.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (image != null) {
+                    image.flush();
+                }
+                image = gc.createCompatibleVolatileImage(GamePanel.PANEL_WIDTH, GamePanel.PANEL_HEIGHT,
+                        Transparency.TRANSLUCENT);
+                rebuild(frame, antialias);
+            } else if (status == VolatileImage.IMAGE_RESTORED || frame.bricks != bricks
+                    || antialias != this.antialias) {
+                rebuild(frame, antialias);
+            } else if (frame.brickAlive != brickAlive) {
+                if (anyRestored(frame)) {
+                    rebuild(frame, antialias); // The level was restarted or a saved game restored
+                } else {
+                    patch(frame);
+                }
+            }
+            g2d.drawImage(image, 0, 0, null);
+        } while (image.contentsLost());
+    }
+
+    // Redraws every visible brick, e.g. for a new game or after the image was lost.
+    private void rebuild(FrameSnapshot frame, boolean antialias) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    antialias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+            for (int i = 0; i < frame.bricks.size(); i++) {
+                if (frame.isBrickAlive(i)) {
+                    frame.bricks.paint(g, i);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        bricks = frame.bricks;
+        brickAlive = frame.brickAlive;
+        this.antialias = antialias;
+    }
+
+    private boolean anyRestored(FrameSnapshot frame) {
+        for (int w = 0; w < brickAlive.length; w++) {
+            if ((frame.brickAlive[w] & ~brickAlive[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Clears just the bricks destroyed since the image was last updated,
+    // found by comparing the alive bits a word (64 bricks) at a time.
+    private void patch(FrameSnapshot frame) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Clear);
+            for (int w = 0; w < brickAlive.length; w++) {
+                long destroyed = brickAlive[w] & ~frame.brickAlive[w];
+                while (destroyed != 0) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(destroyed);
+                    destroyed &= destroyed - 1;
+                    BrickField bricks = frame.bricks;
+                    g.fillRect(bricks.getX(i) - OUTLINE_MARGIN, bricks.getY(i) - OUTLINE_MARGIN,
+                            bricks.getWidth(i) + 1 + 2 * OUTLINE_MARGIN, bricks.getHeight(i) + 1 + 2 * OUTLINE_MARGIN);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        brickAlive = frame.brickAlive;
+    }
+}
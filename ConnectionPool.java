@@ -0,0 +1,145 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+// ConnectionPool hands out up to maxSize JDBC connections to one database and takes them
+// back for reuse. Connections that sat idle for a while are checked before being handed
+// out again, and broken ones are thrown away and replaced, so a dropped MySQL connection
+// costs one reconnect instead of every query after it.
+public class ConnectionPool implements AutoCloseable {
+
+    static final long VALIDATE_AFTER_IDLE_MS = 30_000; // Idle connections older than this are checked first
+    static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+
+    // Idle connections, most recently returned last. Guarded by this.
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private int open; // Idle plus borrowed
+    private boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+    }
+
+    // Returns a working connection, waiting up to timeoutMillis for one to be released if
+    // all maxSize are in use. Hand it back with release() or discard().
+    public Connection borrow(long timeoutMillis) throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                while (!closed && idle.isEmpty() && open >= maxSize) {
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        throw new SQLException("No database connection available within " + timeoutMillis + " ms");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                pooled = idle.pollLast();
+                if (pooled == null) {
+                    open++; // Reserve the slot for the connection opened below; idle ones are counted already
+                }
+            }
+
+            if (pooled == null) {
+                try {
+                    return DriverManager.getConnection(url, user, password);
+                } catch (SQLException e) {
+                    freeSlot();
+                    throw e;
+                }
+            }
+            if (isUsable(pooled)) {
+                return pooled.connection;
+            }
+            closeQuietly(pooled.connection);
+            freeSlot(); // Stale connection: try the next idle one, or open a fresh one
+        }
+    }
+
+    // Gives a healthy connection back to the pool.
+    public void release(Connection connection) {
+        synchronized (this) {
+            if (!closed) {
+                idle.addLast(new PooledConnection(connection, System.nanoTime()));
+                notifyAll();
+                return;
+            }
+            open--;
+        }
+        closeQuietly(connection);
+    }
+
+    // Closes a connection that failed, so it is not handed out again.
+    public void discard(Connection connection) {
+        closeQuietly(connection);
+        freeSlot();
+    }
+
+    // Closes the idle connections. Borrowed ones are closed as they come back.
+    @Override
+    public void close() {
+        ArrayDeque<PooledConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            open -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        for (PooledConnection pooled : toClose) {
+            closeQuietly(pooled.connection);
+        }
+    }
+
+    private synchronized void freeSlot() {
+        open--;
+        notifyAll();
+    }
+
+    private static boolean isUsable(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.idleSince < TimeUnit.MILLISECONDS.toNanos(VALIDATE_AFTER_IDLE_MS)) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already broken; nothing left to do
+        }
+    }
+
+    private static final class PooledConnection {
+        final Connection connection;
+        final long idleSince; // System.nanoTime() when it was returned
+
+        PooledConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+}
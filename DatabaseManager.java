@@ -3,6 +3,9 @@ import java.util.ArrayList;
 import java.util.List;
 import io.github.cdimascio.dotenv.Dotenv;
 
+// DatabaseManager reads high scores from MySQL. Queries borrow a connection from a small
+// pool, and the top scores are kept in a LeaderboardCache for the UI. New scores are not
+// written here: they go to the LocalScoreLog, which ScoreWriter uploads to the same table.
 public class DatabaseManager {
 
     private static final Dotenv dotenv = Dotenv.load();
@@ -10,18 +13,65 @@ public class DatabaseManager {
     private static final String USER = dotenv.get("USER");
     private static final String PASS = dotenv.get("PASS");
 
-    private Connection conn;
+    static final int POOL_SIZE = 4;
+    static final long QUERY_TIMEOUT_MS = 5_000; // How long a query waits for a free connection
+    static final int LEADERBOARD_SIZE = 10;
+    private static final String COLUMNS = "id, name, score, elapsed_ms, timestamp"; // What readRecord reads
 
-    public DatabaseManager() {
+    private final ConnectionPool pool;
+    private final LeaderboardCache leaderboard;
+
+    // A player's best score and where it ranks among all scores (1 = best).
+    public static final class PlayerStanding {
+        final String name;
+        final int bestScore;
+        final int rank;
+
+        PlayerStanding(String name, int bestScore, int rank) {
+            this.name = name;
+            this.bestScore = bestScore;
+            this.rank = rank;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getBestScore() {
+            return bestScore;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+    }
+
+    // Runs a query with a pooled connection.
+    private interface Query<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    // A pool for the database configured in .env. Opening it doesn't connect yet.
+    public static ConnectionPool createPool() {
+        return new ConnectionPool(DB_URL, USER, PASS, POOL_SIZE);
+    }
+
+    public DatabaseManager(ConnectionPool pool) {
+        this.pool = pool;
         try {
             // Load the MySQL JDBC driver
             Class.forName("com.mysql.cj.jdbc.Driver");
             
-            // Establish connection
-            conn = DriverManager.getConnection(DB_URL, USER, PASS);
-            
-            // Create the table if it doesn't exist
-            createHighScoresTable();
+            // Open the first connection right away, so a bad configuration shows up at startup
+            Connection conn = pool.borrow(QUERY_TIMEOUT_MS);
+            try {
+                // Create or upgrade the tables, indexes and views
+                SchemaMigrations.migrate(conn);
+            } finally {
+                pool.release(conn);
+            }
+            leaderboard = new LeaderboardCache(this::getHighScores, LEADERBOARD_SIZE);
+            leaderboard.warm();
             
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("MySQL JDBC Driver not found. Make sure to add the .jar to your classpath.", e);
@@ -30,45 +80,149 @@ public class DatabaseManager {
         }
     }
 
-    private void createHighScoresTable() throws SQLException {
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS highscores (" +
-                "id INT AUTO_INCREMENT PRIMARY KEY," +
-                "name VARCHAR(255) NOT NULL," +
-                "score INT NOT NULL," +
-                "timestamp DATETIME DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-        
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(createTableSQL);
-        }
+    // The cached top scores, for showing without touching the database.
+    public LeaderboardCache getLeaderboard() {
+        return leaderboard;
     }
 
-    public void addHighScore(String name, int score) throws SQLException {
-        String insertSQL = "INSERT INTO highscores (name, score) VALUES (?, ?)";
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-            pstmt.setString(1, name);
-            pstmt.setInt(2, score);
-            pstmt.executeUpdate();
-        }
+    // Queries the best scores, best first. Ordered by idx_highscores_score without sorting.
+    public List<ScoreRecord> getHighScores(int limit) throws SQLException {
+        return getScoresPage(null, limit).getEntries();
     }
 
-    public List<String> getHighScores(int limit) throws SQLException {
-        List<String> scores = new ArrayList<>();
-        String selectSQL = "SELECT name, score FROM highscores ORDER BY score DESC LIMIT ?";
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(selectSQL)) {
-            pstmt.setInt(1, limit);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                int rank = 1;
-                while (rs.next()) {
-                    String name = rs.getString("name");
-                    int score = rs.getInt("score");
-                    scores.add(String.format("%d. %s - %d", rank++, name, score));
+    // Streams every score in the table, in insertion order, to the sink without loading
+    // the table into memory: the driver hands over rows as they arrive from the server.
+    // Holds one pooled connection for the whole export. Returns the number of records.
+    public long exportScores(ScoreRecord.Sink sink) throws SQLException {
+        return withConnection(conn -> {
+            long count = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT " + COLUMNS + " FROM highscores ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(Integer.MIN_VALUE); // MySQL Connector/J: stream row by row
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        sink.accept(readRecord(rs));
+                        count++;
+                    }
+                }
+            } catch (SQLException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("Export stopped: " + e.getMessage(), e);
+            }
+            return count;
+        });
+    }
+
+    // One page of the all-time leaderboard. Pass null for the first page and the previous
+    // page for the next one. Uses the last row of the previous page as the starting point
+    // (keyset pagination), so deep pages cost the same as the first.
+    public LeaderboardPage getScoresPage(LeaderboardPage previous, int pageSize) throws SQLException {
+        return withConnection(conn -> {
+            String sql = "SELECT " + COLUMNS + " FROM highscores " +
+                    (previous == null ? "" : "WHERE score < ? OR (score = ? AND id > ?) ") +
+                    "ORDER BY score DESC, id LIMIT ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int parameter = 1;
+                if (previous != null) {
+                    pstmt.setInt(parameter++, previous.lastScore);
+                    pstmt.setInt(parameter++, previous.lastScore);
+                    pstmt.setInt(parameter++, previous.lastId);
                 }
+                pstmt.setInt(parameter, pageSize + 1);
+                return readPage(pstmt, pageSize);
+            }
+        });
+    }
+
+    // The best scores recorded today.
+    public List<ScoreRecord> getDailyTopScores(int limit) throws SQLException {
+        return getViewTopScores("highscores_daily", limit);
+    }
+
+    // The best scores recorded in the last seven days, today included.
+    public List<ScoreRecord> getWeeklyTopScores(int limit) throws SQLException {
+        return getViewTopScores("highscores_weekly", limit);
+    }
+
+    // The player's best score and its rank, or null if the player has no scores.
+    public PlayerStanding getPlayerStanding(String name) throws SQLException {
+        return withConnection(conn -> {
+            int best;
+            // A single lookup in idx_highscores_name
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT MAX(score) FROM highscores WHERE name = ?")) {
+                pstmt.setString(1, name);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    best = rs.getInt(1);
+                    if (rs.wasNull()) {
+                        return null;
+                    }
+                }
+            }
+            // Counts only the index entries above the best score
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM highscores WHERE score > ?")) {
+                pstmt.setInt(1, best);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    return new PlayerStanding(name, best, rs.getInt(1) + 1);
+                }
+            }
+        });
+    }
+
+    // The view's rows come from idx_highscores_timestamp, so only the period's scores are sorted.
+    private List<ScoreRecord> getViewTopScores(String view, int limit) throws SQLException {
+        return withConnection(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT " + COLUMNS + " FROM " + view +
+                    " ORDER BY score DESC, id LIMIT ?")) {
+                pstmt.setInt(1, limit);
+                return readPage(pstmt, limit).getEntries();
+            }
+        });
+    }
+
+    // Reads up to pageSize rows of COLUMNS; one extra row tells whether there are more.
+    private static LeaderboardPage readPage(PreparedStatement pstmt, int pageSize) throws SQLException {
+        List<ScoreRecord> entries = new ArrayList<>(pageSize);
+        int lastId = 0;
+        boolean hasMore = false;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (entries.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                lastId = rs.getInt("id");
+                entries.add(readRecord(rs));
+            }
+        }
+        return new LeaderboardPage(entries, lastId, hasMore);
+    }
+
+    private static ScoreRecord readRecord(ResultSet rs) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        return new ScoreRecord(rs.getString("name"), rs.getInt("score"), rs.getLong("elapsed_ms"),
+                timestamp == null ? 0 : timestamp.getTime());
+    }
+
+    // Runs query on a pooled connection and always hands the connection back: discarded
+    // after an SQLException, which may mean it is broken, released after anything else.
+    private <T> T withConnection(Query<T> query) throws SQLException {
+        Connection conn = pool.borrow(QUERY_TIMEOUT_MS);
+        boolean broken = false;
+        try {
+            return query.run(conn);
+        } catch (SQLException e) {
+            broken = true;
+            throw e;
+        } finally {
+            if (broken) {
+                pool.discard(conn);
+            } else {
+                pool.release(conn);
             }
         }
-        return scores;
     }
-}
\ No newline at end of file
+}
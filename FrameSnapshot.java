@@ -0,0 +1,48 @@
+// FrameSnapshot is an immutable copy of everything the renderer needs for one frame.
+// The game loop publishes a new one after each batch of ticks, so painting on the EDT
+// never reads objects the simulation thread is in the middle of updating.
+public final class FrameSnapshot {
+
+    final GamePanel.GameState state;
+    final int paddleX, paddleY;
+    final int ballX, ballY;
+    // Positions one tick earlier, for renderers that interpolate between ticks.
+    final int prevPaddleX, prevBallX, prevBallY;
+    final long tickTime; // System.nanoTime() of the latest tick
+    final int score;
+    final long elapsedTime;
+
+    // Brick positions and colors never change after initGame, so the field is shared.
+    final BrickField bricks;
+    // The field's alive bits at publish time; replaced, never modified, when a brick is destroyed.
+    final long[] brickAlive;
+    // Multi-ball extras as (x, y) pairs; empty when there are none. Not interpolated.
+    final int[] extraBalls;
+    // Lines of the metrics overlay (F3), or null when it is hidden.
+    final String[] overlay;
+
+    FrameSnapshot(GamePanel.GameState state, int paddleX, int paddleY, int ballX, int ballY,
+                  int prevPaddleX, int prevBallX, int prevBallY, long tickTime,
+                  int score, long elapsedTime, BrickField bricks, long[] brickAlive,
+                  int[] extraBalls, String[] overlay) {
+        this.state = state;
+        this.paddleX = paddleX;
+        this.paddleY = paddleY;
+        this.ballX = ballX;
+        this.ballY = ballY;
+        this.prevPaddleX = prevPaddleX;
+        this.prevBallX = prevBallX;
+        this.prevBallY = prevBallY;
+        this.tickTime = tickTime;
+        this.score = score;
+        this.elapsedTime = elapsedTime;
+        this.bricks = bricks;
+        this.brickAlive = brickAlive;
+        this.extraBalls = extraBalls;
+        this.overlay = overlay;
+    }
+
+    boolean isBrickAlive(int i) {
+        return BrickField.isAlive(brickAlive, i);
+    }
+}
@@ -0,0 +1,26 @@
+// GameClock is where the simulation reads wall-clock time for the play timer.
+// The game uses SYSTEM; headless runs use a Manual clock so timing is reproducible.
+public interface GameClock {
+
+    GameClock SYSTEM = System::currentTimeMillis;
+
+    long millis();
+
+    // A clock that only moves when told to.
+    final class Manual implements GameClock {
+        private long now;
+
+        @Override
+        public long millis() {
+            return now;
+        }
+
+        public void set(long millis) {
+            now = millis;
+        }
+
+        public void advance(long millis) {
+            now += millis;
+        }
+    }
+}
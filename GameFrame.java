@@ -1,5 +1,7 @@
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -7,27 +9,53 @@ import java.util.List;
 // It holds the control panel (with buttons) and the GamePanel (where the game is played).
 public class GameFrame extends JFrame {
 
+    static final String ICON_PATH = "resources/breakout-icon.png";
+
+    private final AssetManager assets = new AssetManager(AssetManager.DEFAULT_CACHE_BYTES);
     private GamePanel gamePanel;
     private DatabaseManager dbManager;
+    private LocalScoreLog scoreLog;
     private JButton pausePlayButton;
     private JLabel scoreLabel;
-    private JLabel timeLabel;
+    private int shownScore;
+
+    public GameFrame(RenderMode renderMode) {
+        // Start loading assets first, so they load while the rest of the window is set up
+        preloadAssets();
+
+        // Scores are always recorded locally first, so they survive database outages
+        try {
+            scoreLog = LocalScoreLog.open();
+        } catch (IOException e) {
+            System.err.println("Failed to open the local score log: " + e.getMessage());
+            scoreLog = null;
+        }
 
-    public GameFrame() {
         // Initialize the database manager
+        ConnectionPool pool = null;
+        ScoreWriter scoreWriter = null;
         try {
-            dbManager = new DatabaseManager();
+            pool = DatabaseManager.createPool();
+            if (scoreLog != null) {
+                // Started before connecting, so it keeps retrying even if the database is down now
+                scoreWriter = new ScoreWriter(scoreLog, pool);
+            }
+            dbManager = new DatabaseManager(pool);
         } catch (RuntimeException e) {
             JOptionPane.showMessageDialog(this,
                     "Failed to connect to database. High scores will not be available.\n" +
+                            (scoreWriter != null ? "New scores are kept locally and uploaded once it is back.\n" : "") +
                             "Error: " + e.getMessage(),
                     "Database Connection Error",
                     JOptionPane.ERROR_MESSAGE);
             dbManager = null;
         }
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                new ScoreShutdown(scoreWriter, scoreLog, pool), "score-shutdown"));
 
         // --- Create the main game panel ---
-        gamePanel = new GamePanel(this);
+        gamePanel = new GamePanel(this, renderMode, assets);
+        gamePanel.getMetrics().start();
 
         // --- Create the top control panel ---
         JPanel controlPanel = new JPanel(new BorderLayout());
@@ -36,15 +64,8 @@ public class GameFrame extends JFrame {
         // Create logo panel
         JPanel logoPanel = new JPanel();
         logoPanel.setBackground(Color.DARK_GRAY);
-        try {
-            ImageIcon appIcon = new ImageIcon("resources/breakout-icon.png"); // use PNG for safety
-            Image scaled = appIcon.getImage().getScaledInstance(32, 32, Image.SCALE_SMOOTH);
-            this.setIconImage(scaled);
-        } catch (Exception e) {
-            System.err.println("Failed to load app icon: " + e.getMessage());
-        }
 
-        // Create buttons panel with score and time
+        // Create buttons panel with the score (the play time is drawn by the game panel)
         JPanel buttonsPanel = new JPanel(new BorderLayout());
         buttonsPanel.setBackground(Color.DARK_GRAY);
 
@@ -83,17 +104,10 @@ public class GameFrame extends JFrame {
         centerPanel.add(highScoresButton);
         centerPanel.add(exitButton);
 
-        // Right panel for time
+        // Right panel, as wide as the score so the buttons stay centered
         JPanel rightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 5));
         rightPanel.setBackground(Color.DARK_GRAY);
-        timeLabel = new JLabel("Time: 00:00:00");
-        timeLabel.setForeground(Color.BLACK);
-        timeLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        timeLabel.setOpaque(true);
-        timeLabel.setBackground(Color.YELLOW);
-        timeLabel.setPreferredSize(new Dimension(120, 35));
-        timeLabel.setHorizontalAlignment(JLabel.CENTER);
-        rightPanel.add(timeLabel);
+        rightPanel.add(Box.createRigidArea(new Dimension(120, 35)));
 
         buttonsPanel.add(leftPanel, BorderLayout.WEST);
         buttonsPanel.add(centerPanel, BorderLayout.CENTER);
@@ -112,25 +126,34 @@ public class GameFrame extends JFrame {
         this.setResizable(true);
         this.pack();
         this.setLocationRelativeTo(null);
-
-        // Set the window icon to breakout-icon.png
-        try {
-            Image iconImage = Toolkit.getDefaultToolkit().getImage("resources/breakout-icon.png");
-            this.setIconImage(iconImage);
-        } catch (Exception e) {
-            System.err.println("Failed to load icon image: " + e.getMessage());
-        }
-
         this.setVisible(true);
+        showScore(gamePanel.getScore());
+    }
 
-        // Start a timer to update UI labels
-        Timer uiUpdateTimer = new Timer(100, e -> updateUI());
-        uiUpdateTimer.start();
+    // Starts loading the window icon and warming the game's fonts in the background. The
+    // icon is set when it arrives; the frame is shown without waiting for it.
+    private void preloadAssets() {
+        assets.image(ICON_PATH)
+                .thenCombine(assets.scaledImage(ICON_PATH, 32, 32), (full, small) -> Arrays.<Image>asList(small, full))
+                .whenComplete((icons, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("Failed to load app icon: " + error.getMessage());
+                    } else {
+                        setIconImages(icons);
+                    }
+                }));
+        for (Font font : GameRenderer.FONTS) {
+            assets.font(font);
+        }
     }
 
-    private void updateUI() {
-        scoreLabel.setText("Score: " + gamePanel.getScore());
-        timeLabel.setText("Time: " + gamePanel.getFormattedTime());
+    // Updates the score label. Called on the EDT whenever the score changes, so the label
+    // (and the relayout it triggers) is only touched when there is something new to show.
+    public void showScore(int score) {
+        if (scoreLabel != null && score != shownScore) {
+            shownScore = score;
+            scoreLabel.setText("Score: " + score);
+        }
     }
 
     // Toggles the game between paused and playing states.
@@ -143,7 +166,7 @@ public class GameFrame extends JFrame {
         }
     }
 
-    // Fetches and displays the high scores in a dialog box.
+    // Displays the high scores in a dialog box.
     private void showHighScores() {
         if (dbManager == null) {
             JOptionPane.showMessageDialog(this,
@@ -153,33 +176,40 @@ public class GameFrame extends JFrame {
             return;
         }
 
-        try {
-            // Pause the game if it's running
-            if (!gamePanel.isPaused()) {
-                togglePause();
-            }
+        // Pause the game if it's running
+        if (!gamePanel.isPaused()) {
+            togglePause();
+        }
 
-            List<String> scores = dbManager.getHighScores(10);
-            if (scores.isEmpty()) {
-                JOptionPane.showMessageDialog(this,
-                        "No high scores recorded yet!",
-                        "High Scores",
-                        JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                StringBuilder scoreText = new StringBuilder("--- HIGH SCORES ---\n\n");
-                for (String score : scores) {
-                    scoreText.append(score).append("\n");
-                }
-                JOptionPane.showMessageDialog(this,
-                        scoreText.toString(),
-                        "High Scores",
-                        JOptionPane.INFORMATION_MESSAGE);
-            }
-        } catch (Exception e) {
+        // Served from the in-memory leaderboard, so this never waits on the database
+        LeaderboardCache leaderboard = dbManager.getLeaderboard();
+        List<ScoreRecord> scores = leaderboard.top(DatabaseManager.LEADERBOARD_SIZE);
+        if (scores.isEmpty() && leaderboard.getLastError() != null) {
             JOptionPane.showMessageDialog(this,
-                    "Could not retrieve high scores: " + e.getMessage(),
+                    "Could not retrieve high scores: " + leaderboard.getLastError(),
                     "Error",
                     JOptionPane.ERROR_MESSAGE);
+        } else if (scores.isEmpty() && !leaderboard.isLoaded()) {
+            JOptionPane.showMessageDialog(this,
+                    "High scores are still loading, try again in a moment.",
+                    "High Scores",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else if (scores.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "No high scores recorded yet!",
+                    "High Scores",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            StringBuilder scoreText = new StringBuilder("--- HIGH SCORES ---\n\n");
+            int rank = 1;
+            for (ScoreRecord score : scores) {
+                scoreText.append(rank++).append(". ").append(score.getName())
+                        .append(" - ").append(score.getScore()).append("\n");
+            }
+            JOptionPane.showMessageDialog(this,
+                    scoreText.toString(),
+                    "High Scores",
+                    JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
@@ -187,5 +217,47 @@ public class GameFrame extends JFrame {
         return dbManager;
     }
 
+    // Records a high score. Only queues it for the local log, so it never blocks.
+    public void recordHighScore(String name, int score, long elapsedMillis) throws IOException {
+        if (scoreLog == null) {
+            throw new IOException("The local score log could not be opened.");
+        }
+        ScoreRecord record = new ScoreRecord(name, score, elapsedMillis, System.currentTimeMillis());
+        scoreLog.append(record);
+        if (dbManager != null) {
+            dbManager.getLeaderboard().offer(record);
+        }
+    }
+
+    // Stops the uploader, then makes sure queued scores are on disk, then disconnects.
+    private static final class ScoreShutdown implements Runnable {
+        private final ScoreWriter scoreWriter;
+        private final LocalScoreLog scoreLog;
+        private final ConnectionPool pool;
+
+        ScoreShutdown(ScoreWriter scoreWriter, LocalScoreLog scoreLog, ConnectionPool pool) {
+            this.scoreWriter = scoreWriter;
+            this.scoreLog = scoreLog;
+            this.pool = pool;
+        }
+
+        @Override
+        public void run() {
+            if (scoreWriter != null) {
+                scoreWriter.close();
+            }
+            if (scoreLog != null) {
+                try {
+                    scoreLog.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close the local score log: " + e.getMessage());
+                }
+            }
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
 
 }
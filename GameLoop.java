@@ -0,0 +1,112 @@
+import java.util.concurrent.locks.LockSupport;
+
+// GameLoop steps the simulation at a fixed tick rate on its own thread.
+// Real time is collected in an accumulator and consumed in whole ticks, so the
+// physics runs at the same speed no matter how busy the EDT is with painting or dialogs.
+public class GameLoop implements Runnable {
+
+    // If the loop falls further behind than this (GC pause, debugger, suspended laptop)
+    // the rest of the backlog is dropped instead of fast-forwarding the ball through it.
+    static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final long tickNanos;
+    private final long frameNanos; // 0 = one frame per batch of ticks
+    private final Runnable tick;
+    private final Runnable frame;
+
+    // The thread currently allowed to run; any other loop thread exits on its next check.
+    private volatile Thread thread;
+
+    // tick is called once per fixed step, frame once after every batch of ticks.
+    public GameLoop(int ticksPerSecond, Runnable tick, Runnable frame) {
+        this(ticksPerSecond, 0, tick, frame);
+    }
+
+    // Variant that calls frame at its own fixed rate, independent of the tick rate,
+    // for render paths that present frames themselves (see ActiveRenderCanvas).
+    public GameLoop(int ticksPerSecond, int framesPerSecond, Runnable tick, Runnable frame) {
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.frameNanos = framesPerSecond > 0 ? 1_000_000_000L / framesPerSecond : 0;
+        this.tick = tick;
+        this.frame = frame;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops the loop. When called from another thread this waits for the current
+    // tick to finish, so the caller can safely touch the game objects afterwards.
+    public void stop() {
+        Thread running;
+        synchronized (this) {
+            running = thread;
+            thread = null;
+        }
+        if (running == null || running == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(running);
+        boolean interrupted = false;
+        while (running.isAlive()) {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long nextFrame = previous;
+
+        while (thread == self) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int ticks = 0;
+            while (accumulator >= tickNanos && ticks < MAX_CATCH_UP_TICKS && thread == self) {
+                tick.run();
+                accumulator -= tickNanos;
+                ticks++;
+            }
+            if (accumulator >= tickNanos) {
+                accumulator %= tickNanos; // Too far behind, drop the backlog
+            }
+            long wait = tickNanos - accumulator;
+            if (frameNanos == 0) {
+                if (ticks > 0) {
+                    frame.run();
+                }
+            } else {
+                if (now - nextFrame >= 0) {
+                    frame.run();
+                    nextFrame += frameNanos;
+                    if (now - nextFrame >= 0) {
+                        nextFrame = now + frameNanos; // Missed frames are skipped, not queued
+                    }
+                }
+                wait = Math.min(wait, nextFrame - now);
+            }
+
+            LockSupport.parkNanos(this, wait);
+        }
+    }
+}
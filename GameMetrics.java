@@ -0,0 +1,260 @@
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// GameMetrics times the game while it runs: simulation ticks, frame rendering and the
+// interval between frames go into LatencyHistograms, and once a second a sampler thread
+// reads GC and allocation counters from the JVM. Everything is readable over JMX
+// (GameMetricsMBean) for monitoring kiosks, and as text lines for the in-game overlay.
+// The record* methods are cheap enough to call every tick and frame.
+public class GameMetrics implements GameMetricsMBean {
+
+    static final String OBJECT_NAME = "breakout:type=GameMetrics";
+    static final long SAMPLE_INTERVAL_MS = 1_000;
+
+    private final LatencyHistogram update = new LatencyHistogram();
+    private final LatencyHistogram render = new LatencyHistogram();
+    private final LatencyHistogram frameInterval = new LatencyHistogram();
+    private volatile long tickCount; // Only incremented by the game loop thread
+    private volatile long frameCount; // Incremented in recordFrame
+    private long lastFrameStart; // Guarded by this; 0 after a break in play
+
+    // Written by the sampler, read by anyone
+    private volatile long gcCount;
+    private volatile long gcTimeMillis;
+    private volatile long allocationRate = -1;
+    private volatile String[] overlayLines = {"Collecting metrics..."};
+
+    // Sampler thread only
+    private final long[][] previousCounts = new long[3][LatencyHistogram.BUCKETS];
+    private final long[][] currentCounts = new long[3][LatencyHistogram.BUCKETS];
+    private long previousGcCount;
+    private long previousAllocated = -1;
+    private long previousSampleTime;
+    private ScheduledExecutorService sampler;
+
+    // Starts the sampler and publishes the metrics over JMX. Call once per game window.
+    public synchronized void start() {
+        if (sampler != null) {
+            return;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name); // A previous game window in this JVM
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Failed to publish game metrics over JMX: " + e.getMessage());
+        }
+    }
+
+    // Records how long one simulation tick took.
+    public void recordUpdate(long nanos) {
+        update.record(nanos);
+        tickCount++;
+    }
+
+    // Records one rendered frame. Frame intervals are only measured between frames drawn
+    // during play, so pauses and menus don't show up as slow frames. Synchronized because
+    // frames don't always come from one thread: in active rendering the game loop draws
+    // them during play and the EDT while the loop is stopped, and the two can overlap
+    // when the loop stops itself at the end of a game.
+    public synchronized void recordFrame(long startNanos, long endNanos, boolean playing) {
+        render.record(endNanos - startNanos);
+        frameCount++;
+        if (playing && lastFrameStart != 0) {
+            frameInterval.record(startNanos - lastFrameStart);
+        }
+        lastFrameStart = playing ? startNanos : 0;
+    }
+
+    // Text for the on-screen overlay, covering the last sampling interval. The array is
+    // replaced, never modified, so it can be handed to the renderer as is.
+    public String[] getOverlayLines() {
+        return overlayLines;
+    }
+
+    // --- Sampling ---
+
+    private void sample() {
+        long now = System.nanoTime();
+        double seconds = previousSampleTime == 0 ? 0 : (now - previousSampleTime) / 1e9;
+        previousSampleTime = now;
+
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        long newCollections = count - previousGcCount;
+        previousGcCount = count;
+        gcCount = count;
+        gcTimeMillis = time;
+
+        long allocated = allocatedBytes();
+        if (allocated >= 0 && previousAllocated >= 0 && seconds > 0) {
+            // Threads that ended take their counts with them, so the total can drop
+            allocationRate = (long) (Math.max(0, allocated - previousAllocated) / seconds);
+        }
+        previousAllocated = allocated;
+
+        LatencyHistogram[] histograms = {update, render, frameInterval};
+        for (int h = 0; h < histograms.length; h++) {
+            long[] current = currentCounts[h];
+            long[] previous = previousCounts[h];
+            histograms[h].copyCounts(current);
+            for (int i = 0; i < current.length; i++) {
+                long value = current[i];
+                current[i] = Math.max(0, value - previous[i]); // This interval only
+                previous[i] = value;
+            }
+        }
+
+        overlayLines = new String[]{
+                latencyLine("update", currentCounts[0], seconds, "ticks/s"),
+                latencyLine("render", currentCounts[1], seconds, "frames/s"),
+                latencyLine("frame ", currentCounts[2], 0, null),
+                String.format("gc      %d collections, %d ms total (+%d)", count, time, newCollections),
+                allocationRate < 0 ? "alloc   n/a" : String.format("alloc   %.1f MB/s", allocationRate / 1e6),
+        };
+    }
+
+    private static String latencyLine(String label, long[] counts, double seconds, String rateUnit) {
+        String line = String.format("%s  p50 %6.2f  p99 %6.2f  max %6.2f ms", label,
+                LatencyHistogram.percentile(counts, 50) / 1e6,
+                LatencyHistogram.percentile(counts, 99) / 1e6,
+                LatencyHistogram.max(counts) / 1e6);
+        if (rateUnit != null && seconds > 0) {
+            line += String.format("  %.0f %s", LatencyHistogram.total(counts) / seconds, rateUnit);
+        }
+        return line;
+    }
+
+    // Bytes allocated so far by all live threads, or -1 if the JVM can't tell.
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if (!hotspot.isThreadAllocatedMemorySupported() || !hotspot.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : hotspot.getThreadAllocatedBytes(hotspot.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    // --- GameMetricsMBean ---
+
+    @Override
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    @Override
+    public double getUpdateP50Millis() {
+        return percentileMillis(update, 50);
+    }
+
+    @Override
+    public double getUpdateP99Millis() {
+        return percentileMillis(update, 99);
+    }
+
+    @Override
+    public double getUpdateMaxMillis() {
+        return percentileMillis(update, 100);
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public double getRenderP50Millis() {
+        return percentileMillis(render, 50);
+    }
+
+    @Override
+    public double getRenderP99Millis() {
+        return percentileMillis(render, 99);
+    }
+
+    @Override
+    public double getRenderMaxMillis() {
+        return percentileMillis(render, 100);
+    }
+
+    @Override
+    public double getFrameIntervalP50Millis() {
+        return percentileMillis(frameInterval, 50);
+    }
+
+    @Override
+    public double getFrameIntervalP99Millis() {
+        return percentileMillis(frameInterval, 99);
+    }
+
+    @Override
+    public double getFrameIntervalP999Millis() {
+        return percentileMillis(frameInterval, 99.9);
+    }
+
+    @Override
+    public double getFrameIntervalMaxMillis() {
+        return percentileMillis(frameInterval, 100);
+    }
+
+    @Override
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    @Override
+    public long getAllocationRateBytesPerSecond() {
+        return allocationRate;
+    }
+
+    @Override
+    public void resetStatistics() {
+        update.reset();
+        render.reset();
+        frameInterval.reset();
+    }
+
+    private static double percentileMillis(LatencyHistogram histogram, double percentile) {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        histogram.copyCounts(counts);
+        return LatencyHistogram.percentile(counts, percentile) / 1e6;
+    }
+}
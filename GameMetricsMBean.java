@@ -0,0 +1,38 @@
+// Management interface of GameMetrics, published over JMX as breakout:type=GameMetrics.
+// Latency percentiles cover everything recorded since startup or the last resetStatistics().
+public interface GameMetricsMBean {
+
+    long getTickCount();
+
+    double getUpdateP50Millis();
+
+    double getUpdateP99Millis();
+
+    double getUpdateMaxMillis();
+
+    long getFrameCount();
+
+    double getRenderP50Millis();
+
+    double getRenderP99Millis();
+
+    double getRenderMaxMillis();
+
+    double getFrameIntervalP50Millis();
+
+    double getFrameIntervalP99Millis();
+
+    double getFrameIntervalP999Millis();
+
+    double getFrameIntervalMaxMillis();
+
+    long getGcCount();
+
+    long getGcTimeMillis();
+
+    // Bytes allocated per second by all threads over the last sampling interval; -1 if the
+    // JVM can't tell.
+    long getAllocationRateBytesPerSecond();
+
+    void resetStatistics();
+}
@@ -1,232 +1,433 @@
 // Unused imports for blur filter have been removed
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
-import java.util.List;
-
-public class GamePanel extends JPanel implements ActionListener {
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class GamePanel extends JPanel {
 
     // --- Constants ---
-    static final int PANEL_WIDTH = 800;
-    static final int PANEL_HEIGHT = 600;
-    static final int PADDLE_WIDTH = 100;
-    static final int PADDLE_HEIGHT = 20;
-    static final int BALL_DIAMETER = 20;
-    static final int BRICK_ROWS = 5;
-    static final int BRICK_COLS = 10;
-    static final int BRICK_WIDTH = 70;
-    static final int BRICK_HEIGHT = 30;
-    static final int BRICK_GAP = 5;
+    static final int PANEL_WIDTH = GameSimulation.WIDTH;
+    static final int PANEL_HEIGHT = GameSimulation.HEIGHT;
+    static final int PADDLE_WIDTH = GameSimulation.PADDLE_WIDTH;
+    static final int PADDLE_HEIGHT = GameSimulation.PADDLE_HEIGHT;
+    static final int BALL_DIAMETER = GameSimulation.BALL_DIAMETER;
+    static final int TICKS_PER_SECOND = GameSimulation.TICKS_PER_SECOND;
+    static final int ACTIVE_FRAMES_PER_SECOND = Integer.getInteger("breakout.fps", 144);
+    static final String REPLAY_DIRECTORY = System.getProperty("breakout.replays", "replays"); // Empty = don't save
+    static final String SAVE_PATH = System.getProperty("breakout.savegame", "savegame.brks"); // Empty = don't save
+    static final int AUTOSAVE_TICKS = 5 * TICKS_PER_SECOND;
 
     // --- Game State ---
-    private enum GameState {
+    enum GameState {
         PLAYING, PAUSED, GAME_OVER
     }
 
-    private GameState gameState;
-    private Timer gameLoopTimer;
+    private volatile GameState gameState;
+    private final GameLoop gameLoop;
     private GameFrame gameFrame;
 
-    // --- Game Objects ---
-    private Paddle paddle;
-    private Ball ball;
-    private List<Brick> bricks;
-
-    // --- UI & Scoring ---
-    private int score;
-    private long startTime;
-    private long elapsedTime;
-    private long pausedTime;
-    private long totalPausedDuration;
+    // --- Rendering ---
+    private final GameRenderer renderer = new GameRenderer();
+    private final ActiveRenderCanvas activeCanvas; // null when rendering passively
+    private final GameMetrics metrics = new GameMetrics();
+    private volatile boolean overlayVisible; // Metrics overlay, toggled with F3
+    private final SpectatorServer spectators; // null unless -Dbreakout.spectatorPort is set
+
+    // --- Game ---
+    // Only touched by the game loop thread while it runs, and by the EDT while it is stopped.
+    private final GameSimulation simulation;
+    private final Random gameSeeds; // One seed per game, so each game can be replayed on its own
+    private final LevelPack levels; // null: random layouts
+    private int levelIndex; // Level being played; advances when a level is won
+    private int layoutLevel = -1; // Level the simulation's layout came from, -1 for a random one
+    private final int multiBall;
+    private final AssetManager assets;
+    // Layout decoded in the background for the next level, so moving on after a win
+    // doesn't have to. Replaying the same level restarts it in place. Keyed by level index; EDT only.
+    private final Map<Integer, CompletableFuture<BrickField>> preloaded = new HashMap<>();
+    private Replay replay; // Input of the current game
+
+    // Where the game in progress is saved (every AUTOSAVE_TICKS and on pause) to resume it
+    // after a restart; null when not saving. Files are written on their own thread, in order.
+    private final Path savePath;
+    private final ExecutorService saver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Paddle direction asked for by the keyboard (EDT); applied and recorded at the next tick.
+    private volatile int requestedDirection;
+    private int appliedDirection;
+    // Who moves the paddle: the keyboard, or a bot in demo mode (-Dbreakout.bot=<name>)
+    private final PaddleController controller;
+
+    // Latest state published by the simulation; the only thing the renderers read.
+    private volatile FrameSnapshot snapshot;
+    private int prevPaddleX, prevBallX, prevBallY;
+    private long lastTickTime;
+
+    // Latest score for the HUD, and whether an EDT update for it is already queued, so a
+    // burst of brick hits between two EDT turns costs one label update.
+    private volatile int hudScore;
+    private final AtomicBoolean hudScoreQueued = new AtomicBoolean();
 
     public int getScore() {
-        return score;
+        return snapshot.score;
     }
 
-    public String getFormattedTime() {
-        return formatTime(elapsedTime);
+    // Timings of this panel's ticks and frames. Started by GameFrame.
+    public GameMetrics getMetrics() {
+        return metrics;
     }
 
-    public GamePanel(GameFrame frame) {
+    public GamePanel(GameFrame frame, RenderMode renderMode, AssetManager assets) {
         this.gameFrame = frame;
+        this.assets = assets;
+        // Layouts are random per game, but -Dbreakout.seed makes a whole session reproducible
+        this.gameSeeds = new Random(Long.getLong("breakout.seed", System.nanoTime()));
+        this.simulation = new GameSimulation(0, GameClock.SYSTEM);
+        // -Dbreakout.multiball=<n> turns on multi-ball: some bricks release n extra balls
+        this.multiBall = Integer.getInteger("breakout.multiball", 0);
+        this.simulation.setScoreListener(this::scoreChanged);
+        this.levels = LevelPack.openDefault();
+        this.spectators = SpectatorServer.startDefault();
+        String bot = System.getProperty("breakout.bot");
+        this.controller = bot != null ? PaddleBots.create(bot, gameSeeds.nextLong()) : simulation -> requestedDirection;
+        this.savePath = bot == null && !SAVE_PATH.isEmpty() ? Paths.get(SAVE_PATH) : null; // Demo games aren't saved
         this.setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
         this.setBackground(Color.BLACK);
         this.setFocusable(true);
-        this.addKeyListener(new GameKeyAdapter());
-        this.addMouseListener(new MouseAdapter() {
+
+        GameKeyAdapter keyAdapter = new GameKeyAdapter();
+        MouseAdapter mouseAdapter = new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
                 togglePause();
             }
-        });
+        };
+        this.addKeyListener(keyAdapter);
+        this.addMouseListener(mouseAdapter);
+
+        if (renderMode == RenderMode.ACTIVE) {
+            // The canvas covers the whole panel, so it takes over focus and input
+            activeCanvas = new ActiveRenderCanvas(renderer, TICKS_PER_SECOND);
+            activeCanvas.addKeyListener(keyAdapter);
+            activeCanvas.addMouseListener(mouseAdapter);
+            this.setLayout(new BorderLayout());
+            this.add(activeCanvas, BorderLayout.CENTER);
+            gameLoop = new GameLoop(TICKS_PER_SECOND, ACTIVE_FRAMES_PER_SECOND, this::updateGame, this::publishFrame);
+        } else {
+            activeCanvas = null;
+            gameLoop = new GameLoop(TICKS_PER_SECOND, this::updateGame, this::publishFrame);
+        }
 
-        initGame();
+        if (!resumeSavedGame()) {
+            initGame();
+        }
     }
 
     // Initializes all game objects and resets the state.
     public void initGame() {
-        paddle = new Paddle((PANEL_WIDTH - PADDLE_WIDTH) / 2, PANEL_HEIGHT - 50, PADDLE_WIDTH, PADDLE_HEIGHT);
-        ball = new Ball((PANEL_WIDTH - BALL_DIAMETER) / 2, (PANEL_HEIGHT - BALL_DIAMETER) / 2, BALL_DIAMETER);
-
-        bricks = new ArrayList<>();
-        int startX = (PANEL_WIDTH - (BRICK_COLS * (BRICK_WIDTH + BRICK_GAP))) / 2;
-        int startY = 50;
-
-        for (int row = 0; row < BRICK_ROWS; row++) {
-            for (int col = 0; col < BRICK_COLS; col++) {
-                int x = startX + col * (BRICK_WIDTH + BRICK_GAP);
-                int y = startY + row * (BRICK_HEIGHT + BRICK_GAP);
-                bricks.add(new Brick(x, y, BRICK_WIDTH, BRICK_HEIGHT));
+        gameLoop.stop();
+
+        long seed = gameSeeds.nextLong();
+        simulation.setMultiBall(multiBall);
+        replay = null;
+        if (levels != null) {
+            int index = levelIndex % levels.size();
+            try {
+                Level level = levels.get(index);
+                if (index == layoutLevel) {
+                    simulation.restart(seed); // Same level again: reset it in place
+                } else {
+                    simulation.reset(seed, takeLayout(index, level), level.getCellWidth(), level.getCellHeight());
+                    layoutLevel = index;
+                }
+                replay = new Replay(seed, simulation.getMultiBall(), index, level.checksum());
+                preloadLevels(index);
+            } catch (IOException e) {
+                System.err.println("Failed to load level " + (index + 1) + ", using a random layout: " + e.getMessage());
             }
         }
+        if (replay == null) {
+            simulation.reset(seed);
+            layoutLevel = -1;
+            replay = new Replay(seed, simulation.getMultiBall());
+        }
+        requestedDirection = 0;
+        appliedDirection = 0;
 
-        score = 0;
-        startTime = System.currentTimeMillis();
-        pausedTime = startTime;
-        elapsedTime = 0;
-        totalPausedDuration = 0;
-
+        rememberPositions();
         gameState = GameState.PAUSED;
+        publishFrame();
+    }
 
-        if (gameLoopTimer != null) {
-            gameLoopTimer.stop();
+    // Picks up the game saved at savePath, paused where it was left. Returns false, and
+    // leaves initGame() to start a new game, if there is none or it can't be resumed.
+    private boolean resumeSavedGame() {
+        if (savePath == null || !Files.isRegularFile(savePath)) {
+            return false;
+        }
+        try {
+            GameSnapshot saved = GameSnapshot.read(savePath);
+            if (saved.outcome != GameSimulation.Outcome.RUNNING) {
+                return false;
+            }
+            Level level = null;
+            int index = saved.replay.level;
+            if (index >= 0) {
+                if (levels == null || index >= levels.size() || levels.get(index).checksum() != saved.replay.levelChecksum) {
+                    throw new IOException("its level is not in this level pack");
+                }
+                level = levels.get(index);
+            }
+            simulation.restore(saved, level);
+            replay = saved.replay;
+            levelIndex = Math.max(index, 0);
+            layoutLevel = index;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to resume the saved game, starting a new one: " + e.getMessage());
+            return false;
+        }
+        if (levels != null && layoutLevel >= 0) {
+            preloadLevels(layoutLevel);
         }
-        gameLoopTimer = new Timer(16, this);
+        requestedDirection = 0;
+        appliedDirection = simulation.getPaddle().getDirection();
+
+        rememberPositions();
+        gameState = GameState.PAUSED;
+        publishFrame();
+        return true;
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (gameState == GameState.PLAYING) {
-            updateGame();
-            repaint();
+    // The bricks for level index: the preloaded copy if there is one, otherwise decoded now.
+    private BrickField takeLayout(int index, Level level) {
+        CompletableFuture<BrickField> ready = preloaded.remove(index);
+        if (ready != null) {
+            try {
+                return ready.join(); // Normally finished long ago
+            } catch (CompletionException | CancellationException e) {
+                System.err.println("Failed to preload level " + (index + 1) + ": " + e.getMessage());
+            }
         }
+        return level.createField();
     }
 
-    // Draws all game objects and UI elements. Handles painting for different game states.
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    // Starts decoding the level after index, so that moving on to it doesn't have to.
+    private void preloadLevels(int index) {
+        int next = (index + 1) % levels.size();
+        preloaded.keySet().retainAll(Collections.singleton(next));
+        if (next == index || preloaded.containsKey(next)) {
+            return; // Played again in place, or already on its way
+        }
+        try {
+            Level level = levels.get(next);
+            preloaded.put(next, assets.decode(level).thenApply(field -> {
+                level.checksum(); // Computed once per level, and needed when the game starts
+                return field;
+            }));
+        } catch (IOException e) {
+            // Reported if the level is ever played
+        }
+    }
 
-        // Draw border around the game area
-        g2d.setColor(Color.WHITE);
-        g2d.setStroke(new BasicStroke(3));
-        g2d.drawRect(0, 0, PANEL_WIDTH - 1, PANEL_HEIGHT - 1);
+    // Publishes the current simulation state and gets it on screen. Called by the game loop
+    // once per frame, and on the EDT while the loop is stopped.
+    private void publishFrame() {
+        Paddle paddle = simulation.getPaddle();
+        Ball ball = simulation.getBall();
+        BrickField bricks = simulation.getBricks();
+        FrameSnapshot frame = new FrameSnapshot(gameState, paddle.getX(), paddle.getY(), ball.getX(), ball.getY(),
+                prevPaddleX, prevBallX, prevBallY, lastTickTime, simulation.getScore(), simulation.getElapsedTime(),
+                bricks, bricks.aliveBits(), simulation.getExtraBalls().copyPositions(),
+                overlayVisible ? metrics.getOverlayLines() : null);
+        FrameSnapshot previous = snapshot;
+        snapshot = frame;
+        if (spectators != null) {
+            spectators.publish(frame, simulation.getTickCount());
+        }
+        if (activeCanvas != null) {
+            long start = System.nanoTime();
+            activeCanvas.render(frame);
+            metrics.recordFrame(start, System.nanoTime(), frame.state == GameState.PLAYING);
+        } else {
+            repaintChanged(previous, frame);
+        }
+    }
 
-        g2d.setColor(Color.BLACK);
-        g2d.fillRect(5, 5, PANEL_WIDTH - 10, PANEL_HEIGHT - 10);
+    // Invalidates only the areas that differ between two frames: where the ball and
+    // paddle were and are now, plus any destroyed bricks. State changes, overlay updates and
+    // multi-ball, where balls are everywhere anyway, repaint everything.
+    private void repaintChanged(FrameSnapshot before, FrameSnapshot after) {
+        if (before == null || before.state != after.state || before.bricks != after.bricks
+                || before.overlay != after.overlay
+                || before.extraBalls.length > 0 || after.extraBalls.length > 0) {
+            repaint();
+            return;
+        }
+        if (before.elapsedTime / 10 != after.elapsedTime / 10) { // The clock shows hundredths
+            repaint(GameRenderer.CLOCK_X, GameRenderer.CLOCK_Y, GameRenderer.CLOCK_WIDTH, GameRenderer.CLOCK_HEIGHT);
+        }
+        repaintSwept(before.ballX, before.ballY, after.ballX, after.ballY, BALL_DIAMETER, BALL_DIAMETER);
+        repaintSwept(before.paddleX, before.paddleY, after.paddleX, after.paddleY, PADDLE_WIDTH, PADDLE_HEIGHT);
+        if (before.brickAlive != after.brickAlive) {
+            for (int w = 0; w < after.brickAlive.length; w++) {
+                long changed = before.brickAlive[w] ^ after.brickAlive[w];
+                while (changed != 0) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(changed);
+                    changed &= changed - 1;
+                    BrickField field = after.bricks;
+                    repaint(field.getX(i) - 1, field.getY(i) - 1, field.getWidth(i) + 3, field.getHeight(i) + 3); // Include the outline
+                }
+            }
+        }
+    }
 
-        paddle.draw(g2d);
-        ball.draw(g2d);
-        for (Brick brick : bricks) {
-            brick.draw(g2d);
+    // Repaints the area covered by a width x height shape moving from one position to another.
+    private void repaintSwept(int fromX, int fromY, int toX, int toY, int width, int height) {
+        if (fromX == toX && fromY == toY) {
+            return;
         }
+        int x = Math.min(fromX, toX) - 1;
+        int y = Math.min(fromY, toY) - 1;
+        repaint(x, y, Math.max(fromX, toX) - x + width + 2, Math.max(fromY, toY) - y + height + 2);
+    }
 
-        if (gameState == GameState.PAUSED) {
-            g2d.setColor(new Color(128, 128, 128, 150));
-            g2d.fillRect(5, 5, PANEL_WIDTH - 10, PANEL_HEIGHT - 10);
-
-            // Draw Paused messages on top
-            g2d.setColor(Color.WHITE); // Set text color to be visible
-            g2d.setFont(new Font("Arial", Font.BOLD, 50));
-            drawMessage(g2d, "PAUSED", PANEL_HEIGHT / 2 - 20);
-            g2d.setFont(new Font("Arial", Font.BOLD, 20));
-            drawMessage(g2d, "Press Spacebar to Play", PANEL_HEIGHT / 2 + 30);
-            drawMessage(g2d, "Use <-arrow-> keys to move paddle", PANEL_HEIGHT / 2 + 50);
-
-        } else if (gameState == GameState.GAME_OVER) {
-            // Draw Game Over message
-            g2d.setColor(Color.WHITE); // Set text color to be visible
-            g2d.setFont(new Font("Arial", Font.BOLD, 50));
-            drawMessage(g2d, "Game Over !!", PANEL_HEIGHT / 2);
+    // Draws all game objects and UI elements through the shared renderer (passive mode only).
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (activeCanvas == null) {
+            FrameSnapshot frame = snapshot;
+            long start = System.nanoTime();
+            renderer.render((Graphics2D) g, frame, 1.0);
+            metrics.recordFrame(start, System.nanoTime(), frame.state == GameState.PLAYING);
         }
     }
 
-    // Updates the state of all game objects and checks for collisions.
+    // Advances the game by one fixed tick. Runs on the game loop thread.
     private void updateGame() {
-        paddle.move(PANEL_WIDTH);
-        ball.move();
-        checkCollisions();
+        if (gameState != GameState.PLAYING) {
+            return;
+        }
+        // Input only reaches the simulation here, between ticks, so it replays exactly
+        int direction = controller.direction(simulation);
+        if (direction != appliedDirection) {
+            simulation.setPaddleDirection(direction);
+            replay.addInput(simulation.getTickCount(), direction);
+            appliedDirection = direction;
+        }
 
-        // Update timer
-        elapsedTime = System.currentTimeMillis() - startTime - totalPausedDuration;
+        rememberPositions();
+        GameSimulation.Outcome outcome = simulation.tick();
+        metrics.recordUpdate(System.nanoTime() - lastTickTime);
+        if (outcome != GameSimulation.Outcome.RUNNING) {
+            endGame(outcome == GameSimulation.Outcome.WON);
+        } else if (simulation.getTickCount() % AUTOSAVE_TICKS == 0) {
+            saveGame();
+        }
     }
 
-    // Central hub for all collision detection logic.
-    private void checkCollisions() {
-        // Ball with walls (adjusted for border)
-        if (ball.getX() <= 5 || ball.getX() >= PANEL_WIDTH - 5 - ball.diameter) {
-            ball.reverseX();
-        }
-        if (ball.getY() <= 5) {
-            ball.reverseY();
+    // Saves the game in progress to savePath. The state is captured here, between ticks;
+    // only the writing happens on the saver thread.
+    private void saveGame() {
+        if (savePath == null) {
+            return;
         }
+        GameSnapshot state = simulation.snapshot(replay);
+        saver.execute(() -> {
+            try {
+                state.write(savePath);
+            } catch (IOException e) {
+                System.err.println("Failed to save the game: " + e.getMessage());
+            }
+        });
+    }
 
-        // Ball with bottom (Game Over)
-        if (ball.getY() >= PANEL_HEIGHT - 5) {
-            handleGameOver();
-        }
-        // Ball with paddle
-        if (ball.getBounds().intersects(paddle.getBounds())) {
-            ball.setY(paddle.getY() - ball.diameter); // Prevent sticking
-            ball.reverseY();
-            ball.increaseSpeed(0.1);
+    // Deletes the saved game once the game it holds is over, after any save still queued.
+    private void discardSavedGame() {
+        if (savePath == null) {
+            return;
         }
+        saver.execute(() -> {
+            try {
+                Files.deleteIfExists(savePath);
+            } catch (IOException e) {
+                System.err.println("Failed to delete the saved game: " + e.getMessage());
+            }
+        });
+    }
 
-        // Ball with bricks
-        for (int i = 0; i < bricks.size(); i++) {
-            Brick brick = bricks.get(i);
-            if (brick.isVisible() && ball.getBounds().intersects(brick.getBounds())) {
-                brick.setVisible(false);
-                ball.reverseY(); // Simple bounce
-                ball.increaseSpeed(0.1);
-                score += 10;
-
-                // Check for win
-                if (checkWin()) {
-                    handleGameWin();
+    // Passes a score change from the simulation on to the frame's score label. Runs on the
+    // game loop thread (or the EDT when a new game starts).
+    private void scoreChanged(int score) {
+        hudScore = score;
+        if (hudScoreQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                hudScoreQueued.set(false);
+                if (gameFrame != null) {
+                    gameFrame.showScore(hudScore);
                 }
-                break; // A ball can only break one brick per frame
-            }
+            });
         }
     }
 
-    private boolean checkWin() {
-        for (Brick brick : bricks) {
-            if (brick.isVisible()) {
-                return false;
-            }
+    // Records where the ball and paddle are before a tick, for interpolating renderers.
+    private void rememberPositions() {
+        prevPaddleX = simulation.getPaddle().getX();
+        prevBallX = simulation.getBall().getX();
+        prevBallY = simulation.getBall().getY();
+        lastTickTime = System.nanoTime();
+    }
+
+    // Stops the simulation and hands the end-of-game prompt over to the EDT.
+    private void endGame(boolean won) {
+        gameState = GameState.GAME_OVER;
+        gameLoop.stop();
+        replay.finish(simulation.getTickCount(), simulation.getScore(), simulation.getOutcome());
+        saveReplay(replay);
+        discardSavedGame();
+        if (won) {
+            SwingUtilities.invokeLater(this::handleGameWin);
+        } else {
+            SwingUtilities.invokeLater(this::handleGameOver);
         }
-        return true;
     }
 
     private void handleGameWin() {
-        gameState = GameState.GAME_OVER;
-        gameLoopTimer.stop();
         String name = JOptionPane.showInputDialog(this,
-                "YOU WIN! Final Score: " + score + "\nEnter your name:",
+                "YOU WIN! Final Score: " + simulation.getScore() + "\nEnter your name:",
                 "Congratulations!",
                 JOptionPane.PLAIN_MESSAGE);
 
         saveScore(name);
+        levelIndex++; // On to the next level, if there are levels
         initGame(); // Restart game
         repaint(); // Repaint to show the new "PAUSED" screen
     }
 
     private void handleGameOver() {
-        gameState = GameState.GAME_OVER;
-        gameLoopTimer.stop();
-
         String name = JOptionPane.showInputDialog(this,
-                "Game Over! Final Score: " + score + "\nEnter your name:",
+                "Game Over! Final Score: " + simulation.getScore() + "\nEnter your name:",
                 "Game Over",
                 JOptionPane.INFORMATION_MESSAGE);
 
@@ -235,83 +436,50 @@ public class GamePanel extends JPanel implements ActionListener {
         repaint(); // Repaint to show the new "PAUSED" screen
     }
 
-    // Saves the score on a background thread to prevent freezing the application (EDT).
+    // Records the score. This only queues it for the local score log, so it is safe on the EDT.
     private void saveScore(String name) {
         if (name == null || name.trim().isEmpty()) {
             return; // Don't save if name is invalid
         }
 
-        final String finalName = name.trim();
-        final int finalScore = this.score; // Capture the score at this moment
-        final Component parent = this; // For showing dialogs
-
-        // Use SwingWorker to run the DB query on a background thread
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
-            private Exception error = null;
-
-            @Override
-            protected Void doInBackground() throws Exception {
-                // This runs on a separate, background thread
-                try {
-                    DatabaseManager db = gameFrame.getDatabaseManager();
-                    if (db != null) {
-                        db.addHighScore(finalName, finalScore);
-                    }
-                } catch (Exception e) {
-                    // Store any errors that happen
-                    this.error = e;
-                }
-                return null;
-            }
-
-            @Override
-            protected void done() {
-                // This runs back on the Swing (EDT) thread after doInBackground is finished.
-                if (error != null) {
-                    // If an error happened, show it now.
-                    JOptionPane.showMessageDialog(parent,
-                            "Could not save high score: " + error.getMessage(),
-                            "Database Error",
-                            JOptionPane.ERROR_MESSAGE);
-                }
-            }
-        };
-        worker.execute();
-    }
-
-
-
-
-     // Draws a centered message at a specific y-position.
-    private void drawMessage(Graphics2D g2d, String message, int y) {
-        g2d.setColor(Color.WHITE);
-        FontMetrics fm = g2d.getFontMetrics();
-        int msgWidth = fm.stringWidth(message);
-        g2d.drawString(message, (PANEL_WIDTH - msgWidth) / 2, y);
+        try {
+            gameFrame.recordHighScore(name.trim(), simulation.getScore(), simulation.getElapsedTime());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Could not save high score: " + e.getMessage(),
+                    "Database Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
     }
 
-
-
-    // Formats milliseconds into a MM:SS:mmm string.
-    private String formatTime(long millis) {
-        long minutes = (millis / 1000) / 60;
-        long seconds = (millis / 1000) % 60;
-        long milliseconds = (millis % 1000) / 10; // Get 2-digit millis
-        return String.format("%02d:%02d:%02d", minutes, seconds, milliseconds);
+    // Writes the finished game's replay to REPLAY_DIRECTORY, named after when it ended and its score.
+    private static void saveReplay(Replay replay) {
+        if (REPLAY_DIRECTORY.isEmpty()) {
+            return;
+        }
+        try {
+            Path directory = Files.createDirectories(Paths.get(REPLAY_DIRECTORY));
+            replay.write(directory.resolve("replay-" + System.currentTimeMillis() + "-" + replay.finalScore + ".brk"));
+        } catch (IOException e) {
+            System.err.println("Failed to save replay: " + e.getMessage());
+        }
     }
 
     // Toggles the game's paused state.
     public void togglePause() {
         if (gameState == GameState.PLAYING) {
+            gameLoop.stop(); // Waits for the current tick, which may itself end the game
+            if (gameState != GameState.PLAYING) {
+                return;
+            }
             gameState = GameState.PAUSED;
-            pausedTime = System.currentTimeMillis(); // Record when we paused
-            gameLoopTimer.stop();
-            repaint(); // Redraw to show "PAUSED" message
+            simulation.pause();
+            saveGame();
+            publishFrame(); // Redraw to show "PAUSED" message
         } else if (gameState == GameState.PAUSED) {
             gameState = GameState.PLAYING;
-            // Add the duration of the pause to the total pause time
-            totalPausedDuration += System.currentTimeMillis() - pausedTime;
-            gameLoopTimer.start();
+            simulation.resume();
+            gameLoop.start();
         }
     }
 
@@ -324,18 +492,43 @@ public class GamePanel extends JPanel implements ActionListener {
         @Override
         public void keyPressed(KeyEvent e) {
             if (gameState == GameState.PLAYING) {
-                paddle.keyPressed(e);
+                int key = e.getKeyCode();
+                if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+                    requestedDirection = -1;
+                }
+                if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+                    requestedDirection = 1;
+                }
             }
 
             // Allow pause key (space bar) even if game is over
             if (e.getKeyCode() == KeyEvent.VK_SPACE) {
                 togglePause();
             }
+            if (e.getKeyCode() == KeyEvent.VK_F3) {
+                overlayVisible = !overlayVisible;
+                if (gameState != GameState.PLAYING) {
+                    publishFrame(); // The loop isn't running to show it
+                }
+            }
+            if (e.getKeyCode() == KeyEvent.VK_F4) {
+                renderer.setQuality(renderer.getQuality().next());
+                repaint(); // Everything looks different, not just what moves
+                if (gameState != GameState.PLAYING) {
+                    publishFrame();
+                }
+            }
         }
 
         @Override
         public void keyReleased(KeyEvent e) {
-            paddle.keyReleased(e);
+            int key = e.getKeyCode();
+            if ((key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) && requestedDirection == -1) {
+                requestedDirection = 0;
+            }
+            if ((key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) && requestedDirection == 1) {
+                requestedDirection = 0;
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+import java.util.Random;
+
+// GameRandom is java.util.Random with its state out in the open. It uses the same
+// generator (the 48-bit LCG documented for Random), so a seed gives exactly the same
+// numbers as before, but the state can be saved with a game and put back on resume.
+// Not thread-safe; only the simulation's thread uses it.
+final class GameRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    GameRandom(long seed) {
+        super(seed); // Calls setSeed
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed); // Clears Random's cached Gaussian
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    long getState() {
+        return state;
+    }
+
+    void setState(long state) {
+        this.state = state & MASK;
+    }
+}
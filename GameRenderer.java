@@ -0,0 +1,174 @@
+import java.awt.*;
+
+// GameRenderer draws a FrameSnapshot onto any Graphics2D.
+// It is shared by the passive (JPanel) and active (BufferStrategy) render paths and
+// keeps its strokes, fonts and colors around instead of creating them every frame.
+// How it draws is up to its RenderQuality, which can be changed between frames.
+public class GameRenderer {
+
+    private static final BasicStroke BORDER_STROKE = new BasicStroke(3);
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 50);
+    private static final Font HINT_FONT = new Font("Arial", Font.BOLD, 20);
+    private static final Color PAUSE_OVERLAY = new Color(128, 128, 128, 150);
+    private static final Font METRICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color METRICS_BACKGROUND = new Color(0, 0, 0, 180);
+    private static final Color METRICS_TEXT = new Color(120, 255, 120);
+    private static final Font CLOCK_FONT = new Font(Font.MONOSPACED, Font.BOLD, 16);
+    static final Font[] FONTS = {TITLE_FONT, HINT_FONT, METRICS_FONT, CLOCK_FONT}; // For preloading
+
+    // Where the play time is drawn: the top-right corner of the playfield, above the bricks
+    static final int CLOCK_X = GamePanel.PANEL_WIDTH - 140;
+    static final int CLOCK_Y = 8;
+    static final int CLOCK_WIDTH = 130;
+    static final int CLOCK_HEIGHT = 26;
+
+    private final char[] clockText = new char[24]; // Reused every frame
+
+    private final BrickLayer brickLayer = new BrickLayer();
+    private final SpriteCache sprites = new SpriteCache();
+    private volatile RenderQuality quality = RenderQuality.fromProperty();
+
+    public RenderQuality getQuality() {
+        return quality;
+    }
+
+    // Takes effect from the next frame; may be called from any thread.
+    public void setQuality(RenderQuality quality) {
+        this.quality = quality;
+    }
+
+    // Draws one frame. alpha (0..1) blends the ball and paddle between the previous and
+    // the current tick, for render paths that draw more often than the simulation ticks.
+    public void render(Graphics2D g2d, FrameSnapshot frame, double alpha) {
+        final int width = GamePanel.PANEL_WIDTH;
+        final int height = GamePanel.PANEL_HEIGHT;
+
+        RenderQuality quality = this.quality; // The same for the whole frame
+        quality.apply(g2d);
+        if (quality.sprites) {
+            sprites.validate(g2d, quality);
+        }
+
+        // Draw border around the game area
+        g2d.setColor(Color.WHITE);
+        g2d.setStroke(BORDER_STROKE);
+        g2d.drawRect(0, 0, width - 1, height - 1);
+
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(5, 5, width - 10, height - 10);
+
+        int paddleX = lerp(frame.prevPaddleX, frame.paddleX, alpha);
+        int ballX = lerp(frame.prevBallX, frame.ballX, alpha);
+        int ballY = lerp(frame.prevBallY, frame.ballY, alpha);
+        int[] extraBalls = frame.extraBalls;
+        if (quality.sprites) {
+            sprites.drawPaddle(g2d, paddleX, frame.paddleY, GamePanel.PADDLE_WIDTH, GamePanel.PADDLE_HEIGHT);
+            sprites.drawBall(g2d, ballX, ballY, GamePanel.BALL_DIAMETER);
+            for (int i = 0; i < extraBalls.length; i += 2) {
+                sprites.drawBall(g2d, extraBalls[i], extraBalls[i + 1], GamePanel.BALL_DIAMETER);
+            }
+        } else {
+            Paddle.draw(g2d, paddleX, frame.paddleY, GamePanel.PADDLE_WIDTH, GamePanel.PADDLE_HEIGHT);
+            Ball.draw(g2d, ballX, ballY, GamePanel.BALL_DIAMETER);
+            for (int i = 0; i < extraBalls.length; i += 2) {
+                Ball.draw(g2d, extraBalls[i], extraBalls[i + 1], GamePanel.BALL_DIAMETER);
+            }
+        }
+        brickLayer.draw(g2d, frame, quality.antialias);
+        drawClock(g2d, frame.elapsedTime);
+
+        if (frame.state == GamePanel.GameState.PAUSED) {
+            // Software pipelines blend a translucent rectangle about twice as fast with
+            // antialiasing on, and a rectangle on whole pixels looks the same either way
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(PAUSE_OVERLAY);
+            g2d.fillRect(5, 5, width - 10, height - 10);
+            quality.apply(g2d);
+
+            // Draw Paused messages on top
+            g2d.setFont(TITLE_FONT);
+            drawMessage(g2d, quality, "PAUSED", height / 2 - 20);
+            g2d.setFont(HINT_FONT);
+            drawMessage(g2d, quality, "Press Spacebar to Play", height / 2 + 30);
+            drawMessage(g2d, quality, "Use <-arrow-> keys to move paddle", height / 2 + 50);
+
+        } else if (frame.state == GamePanel.GameState.GAME_OVER) {
+            g2d.setFont(TITLE_FONT);
+            drawMessage(g2d, quality, "Game Over !!", height / 2);
+        }
+
+        if (frame.overlay != null) {
+            drawMetrics(g2d, frame.overlay, quality);
+        }
+    }
+
+    // Draws the metrics overlay in the top-left corner, over everything else, with the
+    // render quality as its last line.
+    private void drawMetrics(Graphics2D g2d, String[] lines, RenderQuality quality) {
+        g2d.setFont(METRICS_FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        int lineHeight = fm.getHeight();
+        int boxWidth = fm.stringWidth(quality.overlayLine);
+        for (String line : lines) {
+            boxWidth = Math.max(boxWidth, fm.stringWidth(line));
+        }
+        g2d.setColor(METRICS_BACKGROUND);
+        g2d.fillRect(8, 8, boxWidth + 12, (lines.length + 1) * lineHeight + 8);
+        g2d.setColor(METRICS_TEXT);
+        for (int i = 0; i < lines.length; i++) {
+            g2d.drawString(lines[i], 14, 12 + fm.getAscent() + i * lineHeight);
+        }
+        g2d.drawString(quality.overlayLine, 14, 12 + fm.getAscent() + lines.length * lineHeight);
+    }
+
+    // Draws the play time right-aligned in the clock area, without creating a String.
+    private void drawClock(Graphics2D g2d, long elapsedMillis) {
+        int length = formatTime(elapsedMillis, clockText);
+        g2d.setFont(CLOCK_FONT);
+        g2d.setColor(Color.YELLOW);
+        FontMetrics fm = g2d.getFontMetrics();
+        int x = CLOCK_X + CLOCK_WIDTH - 4 - fm.charsWidth(clockText, 0, length);
+        g2d.drawChars(clockText, 0, length, x, CLOCK_Y + (CLOCK_HEIGHT + fm.getAscent() - fm.getDescent()) / 2);
+    }
+
+    // Writes millis as MM:SS:cc (minutes, seconds, hundredths) into out and returns the
+    // number of chars written. Minutes get more digits past 99.
+    static int formatTime(long millis, char[] out) {
+        long minutes = millis / 60_000;
+        int seconds = (int) (millis / 1000 % 60);
+        int hundredths = (int) (millis % 1000 / 10);
+
+        int digits = 2;
+        for (long m = minutes / 100; m > 0; m /= 10) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            out[i] = (char) ('0' + minutes % 10);
+            minutes /= 10;
+        }
+        int length = digits;
+        out[length++] = ':';
+        out[length++] = (char) ('0' + seconds / 10);
+        out[length++] = (char) ('0' + seconds % 10);
+        out[length++] = ':';
+        out[length++] = (char) ('0' + hundredths / 10);
+        out[length++] = (char) ('0' + hundredths % 10);
+        return length;
+    }
+
+    // Draws a centered message at a specific y-position.
+    private void drawMessage(Graphics2D g2d, RenderQuality quality, String message, int y) {
+        g2d.setColor(Color.WHITE);
+        if (quality.sprites) {
+            sprites.drawCentered(g2d, message, y);
+            return;
+        }
+        FontMetrics fm = g2d.getFontMetrics();
+        int msgWidth = fm.stringWidth(message);
+        g2d.drawString(message, (GamePanel.PANEL_WIDTH - msgWidth) / 2, y);
+    }
+
+    private static int lerp(int from, int to, double alpha) {
+        return (int) Math.round(from + (to - from) * alpha);
+    }
+}
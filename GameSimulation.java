@@ -0,0 +1,551 @@
+// GameSimulation is the game itself: paddle, ball, bricks, scoring and play time.
+// It has no Swing or display dependency, so the same rules run inside GamePanel and in
+// headless tools. Layouts come from a seeded RNG and time from a GameClock, so a given
+// seed, clock and input sequence always plays out the same way.
+public class GameSimulation {
+
+    // --- Constants ---
+    static final int WIDTH = 800;
+    static final int HEIGHT = 600;
+    static final int PADDLE_WIDTH = 100;
+    static final int PADDLE_HEIGHT = 20;
+    static final int BALL_DIAMETER = 20;
+    static final int BRICK_ROWS = 5;
+    static final int BRICK_COLS = 10;
+    static final int BRICK_WIDTH = 70;
+    static final int BRICK_HEIGHT = 30;
+    static final int BRICK_GAP = 5;
+    static final int TICKS_PER_SECOND = 60; // Fixed simulation rate (the old Swing Timer fired every 16 ms)
+    static final int MAX_IMPACTS_PER_TICK = 8; // Any movement left after this many bounces is dropped
+    static final int WALL_THICKNESS = 1000;
+    static final int MAX_EXTRA_BALLS = 1024;
+    static final double MULTI_BALL_CHANCE = 0.15; // Chance that a destroyed brick releases multi-ball
+    static final double SPEED_UP = 0.1; // Added to a ball's speed on every paddle or brick hit
+
+    enum Outcome {
+        RUNNING, WON, LOST
+    }
+
+    // Told about every change of score, on the thread running the simulation.
+    interface ScoreListener {
+        void scoreChanged(int score);
+    }
+
+    private final GameRandom random;
+    private final GameClock clock;
+
+    // --- Game Objects --- (reused by every game)
+    private final Paddle paddle = new Paddle((WIDTH - PADDLE_WIDTH) / 2, HEIGHT - 50, PADDLE_WIDTH, PADDLE_HEIGHT);
+    // Player 2's paddle in two-player games, where each player keeps to one half of the
+    // bottom edge (player 1 the left one). Unused in one-player games.
+    private final Paddle secondPaddle = new Paddle(WIDTH / 2, HEIGHT - 50, PADDLE_WIDTH, PADDLE_HEIGHT);
+    private boolean twoPlayer;
+    private final Ball ball = new Ball((WIDTH - BALL_DIAMETER) / 2, (HEIGHT - BALL_DIAMETER) / 2, BALL_DIAMETER);
+    private final BallSwarm extraBalls = new BallSwarm(MAX_EXTRA_BALLS, BALL_DIAMETER);
+    private int multiBallCount; // Balls released per multi-ball power-up; 0 = mode off
+    private double speedUp = SPEED_UP;
+    private BrickField bricks;
+    private BrickGrid brickGrid;
+    private int[] brickCandidates = new int[256]; // Reused by every collision query; grown if ever too small
+    private final SweptCollision.Impact impact = new SweptCollision.Impact();
+
+    // --- Scoring & Timing ---
+    private Outcome outcome;
+    private int tickCount; // Ticks played since the last reset
+    private int score;
+    private final int[] playerScores = new int[2]; // Two-player games: bricks broken by each player's hits
+    private int ballPlayer; // Player whose paddle the main ball last bounced off
+    private long startTime;
+    private long elapsedTime;
+    private boolean paused;
+    private long pausedTime;
+    private long totalPausedDuration;
+    private ScoreListener scoreListener;
+
+    public GameSimulation(long seed, GameClock clock) {
+        this.random = new GameRandom(seed);
+        this.clock = clock;
+        reset();
+    }
+
+    // Starts a new game whose layout and random events all follow from the seed, so it
+    // can be replayed from the seed and the inputs alone.
+    public void reset(long seed) {
+        random.setSeed(seed);
+        reset();
+    }
+
+    // Starts a new game on a level from a level pack, with random events following from
+    // the seed.
+    public void reset(long seed, Level level) {
+        reset(seed, level.createField(), level.getCellWidth(), level.getCellHeight());
+    }
+
+    // Starts a new game on a layout already decoded from a level (see reset(BrickField, int, int)),
+    // with random events following from the seed.
+    public void reset(long seed, BrickField layout, int cellWidth, int cellHeight) {
+        random.setSeed(seed);
+        reset(layout, cellWidth, cellHeight);
+    }
+
+    // Starts a new game with a fresh layout from the RNG. A new game starts paused;
+    // call resume() before ticking.
+    public void reset() {
+        int startX = (WIDTH - (BRICK_COLS * (BRICK_WIDTH + BRICK_GAP))) / 2;
+        reset(BrickField.grid(BRICK_ROWS, BRICK_COLS, startX, 50, BRICK_WIDTH, BRICK_HEIGHT, BRICK_GAP, random),
+                BRICK_WIDTH + BRICK_GAP, BRICK_HEIGHT + BRICK_GAP);
+    }
+
+    // Starts a new game on the given layout, which the simulation takes ownership of.
+    // cellWidth/cellHeight size the collision grid, normally the layout's brick pitch.
+    public void reset(BrickField layout, int cellWidth, int cellHeight) {
+        bricks = layout;
+        brickGrid = new BrickGrid(bricks, cellWidth, cellHeight);
+        startRound();
+    }
+
+    // Starts the current layout over with every brick back, as a new game with the given
+    // seed. Plays exactly like reset(seed, level) on the level the layout came from, but
+    // decodes nothing and keeps the collision grid, so restarting a level is instant.
+    // Not for random layouts: reset(seed) draws their colors from the seed first.
+    public void restart(long seed) {
+        random.setSeed(seed);
+        bricks.restore();
+        startRound();
+    }
+
+    // Puts the paddle and ball back in place and the score and timer back to zero.
+    private void startRound() {
+        if (twoPlayer) {
+            paddle.reset((WIDTH / 2 - PADDLE_WIDTH) / 2);
+            secondPaddle.reset(WIDTH / 2 + (WIDTH / 2 - PADDLE_WIDTH) / 2);
+        } else {
+            paddle.reset((WIDTH - PADDLE_WIDTH) / 2);
+        }
+        ball.set((WIDTH - BALL_DIAMETER) / 2, (HEIGHT - BALL_DIAMETER) / 2, Ball.START_DX, Ball.START_DY);
+        extraBalls.clear();
+
+        outcome = Outcome.RUNNING;
+        tickCount = 0;
+        score = 0;
+        playerScores[0] = 0;
+        playerScores[1] = 0;
+        ballPlayer = 0;
+        fireScoreChanged();
+        startTime = clock.millis();
+        elapsedTime = 0;
+        paused = true;
+        pausedTime = startTime;
+        totalPausedDuration = 0;
+    }
+
+    // Captures the game in progress, for restore(). replay is the recording of the game
+    // so far, which the snapshot keeps a copy of so the resumed game can be recorded on.
+    public GameSnapshot snapshot(Replay replay) {
+        return new GameSnapshot(this, replay, random.getState());
+    }
+
+    // Puts a captured game back, paused, in place of the current one. level is the level
+    // the game was on (snapshot.replay.level), or null if it was on a random layout.
+    // Play carries on exactly as if the game had never stopped.
+    public void restore(GameSnapshot snapshot, Level level) {
+        if (level != null) {
+            reset(snapshot.replay.seed, level);
+        } else {
+            reset(snapshot.replay.seed);
+        }
+        multiBallCount = snapshot.replay.multiBall;
+        speedUp = snapshot.speedUp;
+        bricks.restore(snapshot.brickAlive, snapshot.brickHitPoints);
+        paddle.reset(snapshot.paddleX);
+        paddle.setDirection(snapshot.paddleDirection);
+        ball.set(snapshot.ballX, snapshot.ballY, snapshot.ballDx, snapshot.ballDy);
+        for (int i = 0; i < snapshot.extraX.length; i++) {
+            extraBalls.add(snapshot.extraX[i], snapshot.extraY[i], snapshot.extraDx[i], snapshot.extraDy[i]);
+        }
+        random.setState(snapshot.randomState);
+
+        outcome = snapshot.outcome;
+        tickCount = snapshot.tickCount;
+        score = snapshot.score;
+        fireScoreChanged();
+        long now = clock.millis(); // Still paused by reset(), with the saved play time
+        elapsedTime = snapshot.elapsedTime;
+        startTime = now - elapsedTime;
+        pausedTime = now;
+    }
+
+    // Stops the play timer. The caller is expected to stop ticking until resume().
+    public void pause() {
+        if (!paused) {
+            paused = true;
+            pausedTime = clock.millis();
+        }
+    }
+
+    public void resume() {
+        if (paused) {
+            paused = false;
+            // Add the duration of the pause to the total pause time
+            totalPausedDuration += clock.millis() - pausedTime;
+        }
+    }
+
+    // Sets the listener told about score changes, or null for none. Survives reset().
+    public void setScoreListener(ScoreListener listener) {
+        scoreListener = listener;
+    }
+
+    // Turns on multi-ball mode: destroyed bricks sometimes release this many extra balls.
+    // 0 turns it off. Takes effect immediately and survives reset().
+    public void setMultiBall(int ballsPerPowerUp) {
+        multiBallCount = Math.max(0, ballsPerPowerUp);
+    }
+
+    public int getMultiBall() {
+        return multiBallCount;
+    }
+
+    // Sets how much faster a ball gets on every paddle or brick hit, for tuning difficulty.
+    // Survives reset(). Replays assume the default.
+    public void setSpeedUp(double speedUp) {
+        this.speedUp = speedUp;
+    }
+
+    public double getSpeedUp() {
+        return speedUp;
+    }
+
+    // Turns on two-player games: a second paddle, and a score per player for the bricks
+    // their hits break. Takes effect on the next reset, and survives it.
+    public void setTwoPlayer(boolean twoPlayer) {
+        this.twoPlayer = twoPlayer;
+    }
+
+    public boolean isTwoPlayer() {
+        return twoPlayer;
+    }
+
+    // Makes this simulation an exact copy of other, which must be playing the same layout
+    // (a separate BrickField with the same bricks), so it plays on identically from here.
+    // Used to roll back to a known state; allocates nothing.
+    public void copyFrom(GameSimulation other) {
+        bricks.copyStateFrom(other.bricks);
+        paddle.reset(other.paddle.getX());
+        paddle.setDirection(other.paddle.getDirection());
+        secondPaddle.reset(other.secondPaddle.getX());
+        secondPaddle.setDirection(other.secondPaddle.getDirection());
+        Ball from = other.ball;
+        ball.set(from.getExactX(), from.getExactY(), from.getDx(), from.getDy());
+        extraBalls.clear();
+        BallSwarm extras = other.extraBalls;
+        for (int i = 0; i < extras.size(); i++) {
+            extraBalls.add(extras.x[i], extras.y[i], extras.dx[i], extras.dy[i]);
+        }
+        random.setState(other.random.getState());
+        multiBallCount = other.multiBallCount;
+        speedUp = other.speedUp;
+        twoPlayer = other.twoPlayer;
+
+        outcome = other.outcome;
+        tickCount = other.tickCount;
+        score = other.score;
+        playerScores[0] = other.playerScores[0];
+        playerScores[1] = other.playerScores[1];
+        ballPlayer = other.ballPlayer;
+        fireScoreChanged();
+        startTime = other.startTime;
+        elapsedTime = other.elapsedTime;
+        paused = other.paused;
+        pausedTime = other.pausedTime;
+        totalPausedDuration = other.totalPausedDuration;
+    }
+
+    // A hash of everything that decides how the game plays on, for checking that two
+    // copies of a game (e.g. on two networked machines) haven't drifted apart.
+    public long checksum() {
+        long hash = random.getState();
+        hash = hash * 31 + paddle.getX();
+        hash = hash * 31 + secondPaddle.getX();
+        hash = hash * 31 + Double.doubleToLongBits(ball.getExactX());
+        hash = hash * 31 + Double.doubleToLongBits(ball.getExactY());
+        hash = hash * 31 + Double.doubleToLongBits(ball.getDx());
+        hash = hash * 31 + Double.doubleToLongBits(ball.getDy());
+        for (int i = 0; i < extraBalls.size(); i++) {
+            hash = hash * 31 + Double.doubleToLongBits(extraBalls.x[i]);
+            hash = hash * 31 + Double.doubleToLongBits(extraBalls.y[i]);
+        }
+        for (long word : bricks.aliveBits()) {
+            hash = hash * 31 + word;
+        }
+        hash = hash * 31 + tickCount;
+        return hash * 31 + score;
+    }
+
+    // Advances the game by one fixed tick and returns the outcome. Once the game is won
+    // or lost, further ticks change nothing.
+    public Outcome tick() {
+        if (outcome != Outcome.RUNNING) {
+            return outcome;
+        }
+        tickCount++;
+        if (twoPlayer) {
+            paddle.move(0, WIDTH / 2);
+            secondPaddle.move(WIDTH / 2, WIDTH);
+        } else {
+            paddle.move(WIDTH);
+        }
+        checkCollisions(); // Also moves the balls
+
+        // Update timer
+        elapsedTime = clock.millis() - startTime - totalPausedDuration;
+        return outcome;
+    }
+
+    // Moves every ball through one tick and resolves every impact along the way in time order,
+    // reflecting on the axis of the face that was hit. Because balls are swept instead of
+    // stepped, they cannot tunnel through bricks, the paddle or the walls at any speed.
+    private void checkCollisions() {
+        moveBall();
+        if (outcome == Outcome.RUNNING) {
+            moveExtraBalls();
+        }
+        if (outcome != Outcome.RUNNING) {
+            return;
+        }
+
+        // Ball with bottom: extra balls are simply lost, the main ball is replaced by an
+        // extra one while any are left (Game Over otherwise)
+        for (int i = 0; i < extraBalls.size(); i++) {
+            if (extraBalls.y[i] >= HEIGHT - 5) {
+                extraBalls.remove(i--);
+            }
+        }
+        if (ball.getY() >= HEIGHT - 5) {
+            int last = extraBalls.size() - 1;
+            if (last < 0) {
+                outcome = Outcome.LOST;
+                return;
+            }
+            ball.set(extraBalls.x[last], extraBalls.y[last], extraBalls.dx[last], extraBalls.dy[last]);
+            extraBalls.remove(last);
+        }
+    }
+
+    private void moveBall() {
+        double remaining = 1.0; // Fraction of this tick's movement still to do
+        for (int n = 0; n < MAX_IMPACTS_PER_TICK && remaining > 0; n++) {
+            double vx = ball.getDx() * remaining;
+            double vy = ball.getDy() * remaining;
+            if (!findImpact(ball.getExactX(), ball.getExactY(), vx, vy, ball.diameter)) {
+                ball.advance(remaining);
+                break;
+            }
+
+            // Move up to the point of contact, bounce, and carry on with what is left
+            ball.advance(remaining * impact.time);
+            remaining *= 1 - impact.time;
+            ball.bounceAwayFrom(impact.xAxis, impact.centerX, impact.centerY);
+
+            if (impact.kind == SweptCollision.Impact.PADDLE) {
+                if (!impact.xAxis && ball.getDy() < 0) {
+                    ball.setY(paddle.getY() - ball.diameter); // Prevent sticking
+                }
+                ball.increaseSpeed(speedUp);
+                ballPlayer = impact.index;
+            } else if (impact.kind == SweptCollision.Impact.BRICK) {
+                ball.increaseSpeed(speedUp);
+                hitBrick(impact.index, ball.getExactX(), ball.getExactY(), ball.getDx(), ball.getDy());
+                if (outcome != Outcome.RUNNING) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // The multi-ball counterpart of moveBall, run as one batched pass over the swarm's arrays.
+    private void moveExtraBalls() {
+        BallSwarm balls = extraBalls;
+        int size = balls.diameter;
+        for (int b = 0; b < balls.size(); b++) {
+            double remaining = 1.0;
+            for (int n = 0; n < MAX_IMPACTS_PER_TICK && remaining > 0; n++) {
+                double vx = balls.dx[b] * remaining;
+                double vy = balls.dy[b] * remaining;
+                if (!findImpact(balls.x[b], balls.y[b], vx, vy, size)) {
+                    balls.x[b] += vx;
+                    balls.y[b] += vy;
+                    break;
+                }
+
+                balls.x[b] += vx * impact.time;
+                balls.y[b] += vy * impact.time;
+                remaining *= 1 - impact.time;
+                balls.bounceAwayFrom(b, impact.xAxis, impact.centerX, impact.centerY);
+
+                if (impact.kind == SweptCollision.Impact.PADDLE) {
+                    if (!impact.xAxis && balls.dy[b] < 0) {
+                        balls.y[b] = paddle.getY() - size; // Prevent sticking
+                    }
+                    balls.increaseSpeed(b, speedUp);
+                } else if (impact.kind == SweptCollision.Impact.BRICK) {
+                    balls.increaseSpeed(b, speedUp);
+                    hitBrick(impact.index, balls.x[b], balls.y[b], balls.dx[b], balls.dy[b]);
+                    if (outcome != Outcome.RUNNING) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // Finds the earliest thing a size x size ball at (px, py) hits while moving by (vx, vy)
+    // and leaves it in impact. Returns false if the path is clear.
+    private boolean findImpact(double px, double py, double vx, double vy, int size) {
+        impact.reset();
+
+        // Walls (adjusted for border), modelled as thick slabs just outside the play area
+        if (SweptCollision.sweep(px, py, vx, vy, size, 5 - WALL_THICKNESS, -WALL_THICKNESS,
+                WALL_THICKNESS, HEIGHT + 2 * WALL_THICKNESS, impact)
+                | SweptCollision.sweep(px, py, vx, vy, size, WIDTH - 5, -WALL_THICKNESS,
+                WALL_THICKNESS, HEIGHT + 2 * WALL_THICKNESS, impact)
+                | SweptCollision.sweep(px, py, vx, vy, size, -WALL_THICKNESS, 5 - WALL_THICKNESS,
+                WIDTH + 2 * WALL_THICKNESS, WALL_THICKNESS, impact)) {
+            impact.kind = SweptCollision.Impact.WALL;
+        }
+
+        // Paddle
+        if (SweptCollision.sweep(px, py, vx, vy, size,
+                paddle.getX(), paddle.getY(), paddle.getWidth(), paddle.getHeight(), impact)) {
+            impact.kind = SweptCollision.Impact.PADDLE;
+            impact.index = 0;
+        }
+        if (twoPlayer && SweptCollision.sweep(px, py, vx, vy, size, secondPaddle.getX(), secondPaddle.getY(),
+                secondPaddle.getWidth(), secondPaddle.getHeight(), impact)) {
+            impact.kind = SweptCollision.Impact.PADDLE;
+            impact.index = 1;
+        }
+
+        // Bricks, only those in the grid cells the ball sweeps through this tick. A sweep
+        // longer than a cell is queried a piece of at most one cell at a time, in order, so a
+        // fast ball over a dense level never gathers hundreds of candidates at once. Once a
+        // piece has something hit within it, no brick further along can be hit earlier.
+        int pieces = Math.max(1, (int) Math.ceil(Math.max(Math.abs(vx) / brickGrid.getCellWidth(),
+                Math.abs(vy) / brickGrid.getCellHeight())));
+        for (int p = 0; p < pieces; p++) {
+            double from = p / (double) pieces;
+            double to = (p + 1) / (double) pieces;
+            double x0 = px + vx * from, x1 = px + vx * to;
+            double y0 = py + vy * from, y1 = py + vy * to;
+            int candidates;
+            while ((candidates = brickGrid.query(Math.min(x0, x1), Math.min(y0, y1),
+                    Math.abs(x1 - x0) + size, Math.abs(y1 - y0) + size, brickCandidates)) < 0) {
+                brickCandidates = new int[brickCandidates.length * 2]; // Tiny cells under a big ball
+            }
+            for (int c = 0; c < candidates; c++) {
+                int i = brickCandidates[c];
+                if (bricks.isAlive(i) && SweptCollision.sweep(px, py, vx, vy, size,
+                        bricks.getX(i), bricks.getY(i), bricks.getWidth(i), bricks.getHeight(i), impact)) {
+                    impact.kind = SweptCollision.Impact.BRICK;
+                    impact.index = i;
+                }
+            }
+            if (impact.time <= to) {
+                break;
+            }
+        }
+        return impact.kind != SweptCollision.Impact.NONE;
+    }
+
+    // Hits brick i with a ball at (x, y) moving at (dx, dy). If that breaks it, scores it
+    // and checks for a win and for a multi-ball power-up.
+    private void hitBrick(int i, double x, double y, double dx, double dy) {
+        if (!bricks.hit(i)) {
+            return; // A tough brick with hits left, or an unbreakable one
+        }
+        score += 10;
+        playerScores[ballPlayer] += 10; // Extra balls count for whoever last hit the main ball
+        fireScoreChanged();
+        if (checkWin()) {
+            outcome = Outcome.WON;
+        } else if (multiBallCount > 0 && random.nextDouble() < MULTI_BALL_CHANCE) {
+            releaseMultiBall(x, y, Math.sqrt(dx * dx + dy * dy));
+        }
+    }
+
+    // Releases extra balls from the given point at the given speed, fanned out upwards.
+    // StrictMath, not Math: Math may use faster platform intrinsics that differ in the last
+    // bit, and two machines playing one game in lockstep must compute identical balls.
+    private void releaseMultiBall(double x, double y, double speed) {
+        for (int n = 0; n < multiBallCount; n++) {
+            double angle = StrictMath.toRadians(-150 + random.nextDouble() * 120); // -150..-30 degrees
+            if (!extraBalls.add(x, y, StrictMath.cos(angle) * speed, StrictMath.sin(angle) * speed)) {
+                return; // Swarm is full
+            }
+        }
+    }
+
+    private void fireScoreChanged() {
+        if (scoreListener != null) {
+            scoreListener.scoreChanged(score);
+        }
+    }
+
+    private boolean checkWin() {
+        return bricks.liveCount() == 0;
+    }
+
+    // -1 = left, 0 = stop, 1 = right. Takes effect on the next tick.
+    public void setPaddleDirection(int direction) {
+        paddle.setDirection(direction);
+    }
+
+    // Sets the paddle direction of player 0 or 1 (see setPaddleDirection(int)).
+    public void setPaddleDirection(int player, int direction) {
+        getPaddle(player).setDirection(direction);
+    }
+
+    public Paddle getPaddle() {
+        return paddle;
+    }
+
+    // Player 0's or player 1's paddle; player 1's only plays in two-player games.
+    public Paddle getPaddle(int player) {
+        return player == 0 ? paddle : secondPaddle;
+    }
+
+    public Ball getBall() {
+        return ball;
+    }
+
+    // The balls added by multi-ball, on top of getBall().
+    public BallSwarm getExtraBalls() {
+        return extraBalls;
+    }
+
+    public BrickField getBricks() {
+        return bricks;
+    }
+
+    // Ticks played in the current game; input recorded against this number replays exactly.
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    // Points of player 0 or 1 in a two-player game; together they make getScore().
+    public int getScore(int player) {
+        return playerScores[player];
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+}
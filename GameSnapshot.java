@@ -0,0 +1,213 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// GameSnapshot is a game in progress frozen at a tick boundary: everything the
+// simulation needs to carry on exactly where it stopped, including the RNG state, plus
+// the replay recorded so far, so a resumed game still replays from its first tick.
+// Taken with GameSimulation.snapshot() and put back with GameSimulation.restore().
+//
+// File layout: int magic "BRKS", byte version, short ticks per second, int replay
+// length, the replay (see Replay), int tick count, int score, long elapsed millis,
+// byte outcome, long RNG state, double speed-up, int paddle x, byte paddle direction,
+// ball x, y, dx, dy as doubles, int extra ball count, x, y, dx, dy per extra ball,
+// int brick count, int alive word count, alive words as longs, one hit points byte per
+// brick, int CRC32 of everything before it.
+public final class GameSnapshot {
+
+    static final int MAGIC = 0x42524B53; // "BRKS"
+    static final int VERSION = 1;
+
+    final Replay replay; // A copy; the game's own replay keeps recording
+    final int tickCount;
+    final int score;
+    final long elapsedTime;
+    final GameSimulation.Outcome outcome;
+    final long randomState;
+    final double speedUp;
+    final int paddleX;
+    final int paddleDirection;
+    final double ballX, ballY, ballDx, ballDy;
+    final double[] extraX, extraY, extraDx, extraDy;
+    final long[] brickAlive;
+    final byte[] brickHitPoints;
+
+    GameSnapshot(GameSimulation simulation, Replay replay, long randomState) {
+        this.replay = replay.copy();
+        this.tickCount = simulation.getTickCount();
+        this.score = simulation.getScore();
+        this.elapsedTime = simulation.getElapsedTime();
+        this.outcome = simulation.getOutcome();
+        this.randomState = randomState;
+        this.speedUp = simulation.getSpeedUp();
+        Paddle paddle = simulation.getPaddle();
+        this.paddleX = paddle.getX();
+        this.paddleDirection = paddle.getDirection();
+        Ball ball = simulation.getBall();
+        this.ballX = ball.getExactX();
+        this.ballY = ball.getExactY();
+        this.ballDx = ball.getDx();
+        this.ballDy = ball.getDy();
+        BallSwarm extra = simulation.getExtraBalls();
+        int count = extra.size();
+        extraX = new double[count];
+        extraY = new double[count];
+        extraDx = new double[count];
+        extraDy = new double[count];
+        System.arraycopy(extra.x, 0, extraX, 0, count);
+        System.arraycopy(extra.y, 0, extraY, 0, count);
+        System.arraycopy(extra.dx, 0, extraDx, 0, count);
+        System.arraycopy(extra.dy, 0, extraDy, 0, count);
+        BrickField bricks = simulation.getBricks();
+        this.brickAlive = bricks.aliveBits(); // Copy-on-write, so never changed after this
+        this.brickHitPoints = bricks.copyHitPoints();
+    }
+
+    private GameSnapshot(Replay replay, DataInputStream in) throws IOException {
+        this.replay = replay;
+        this.tickCount = in.readInt();
+        this.score = in.readInt();
+        this.elapsedTime = in.readLong();
+        int outcome = in.readUnsignedByte();
+        if (outcome >= GameSimulation.Outcome.values().length) {
+            throw new IOException("unknown game outcome " + outcome);
+        }
+        this.outcome = GameSimulation.Outcome.values()[outcome];
+        this.randomState = in.readLong();
+        this.speedUp = in.readDouble();
+        this.paddleX = in.readInt();
+        this.paddleDirection = in.readByte();
+        this.ballX = in.readDouble();
+        this.ballY = in.readDouble();
+        this.ballDx = in.readDouble();
+        this.ballDy = in.readDouble();
+        int count = in.readInt();
+        if (count < 0 || count > GameSimulation.MAX_EXTRA_BALLS) {
+            throw new IOException("bad extra ball count " + count);
+        }
+        extraX = new double[count];
+        extraY = new double[count];
+        extraDx = new double[count];
+        extraDy = new double[count];
+        for (int i = 0; i < count; i++) {
+            extraX[i] = in.readDouble();
+            extraY[i] = in.readDouble();
+            extraDx[i] = in.readDouble();
+            extraDy[i] = in.readDouble();
+        }
+        int bricks = in.readInt();
+        int words = in.readInt();
+        if (bricks < 0 || words < 0 || words > in.available() / 8) {
+            throw new IOException("bad brick count " + bricks);
+        }
+        brickAlive = new long[words];
+        for (int w = 0; w < words; w++) {
+            brickAlive[w] = in.readLong();
+        }
+        if (bricks > in.available()) {
+            throw new IOException("bad brick count " + bricks);
+        }
+        brickHitPoints = new byte[bricks];
+        in.readFully(brickHitPoints);
+    }
+
+    // Writes the snapshot, replacing any previous file atomically, so a crash or power
+    // cut mid-save leaves the last complete save in place.
+    public void write(Path path) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + brickHitPoints.length + extraX.length * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeShort(GameSimulation.TICKS_PER_SECOND);
+        byte[] replayBytes = replay.toBytes();
+        out.writeInt(replayBytes.length);
+        out.write(replayBytes);
+        out.writeInt(tickCount);
+        out.writeInt(score);
+        out.writeLong(elapsedTime);
+        out.writeByte(outcome.ordinal());
+        out.writeLong(randomState);
+        out.writeDouble(speedUp);
+        out.writeInt(paddleX);
+        out.writeByte(paddleDirection);
+        out.writeDouble(ballX);
+        out.writeDouble(ballY);
+        out.writeDouble(ballDx);
+        out.writeDouble(ballDy);
+        out.writeInt(extraX.length);
+        for (int i = 0; i < extraX.length; i++) {
+            out.writeDouble(extraX[i]);
+            out.writeDouble(extraY[i]);
+            out.writeDouble(extraDx[i]);
+            out.writeDouble(extraDy[i]);
+        }
+        out.writeInt(brickHitPoints.length);
+        out.writeInt(brickAlive.length);
+        for (long word : brickAlive) {
+            out.writeLong(word);
+        }
+        out.write(brickHitPoints);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static GameSnapshot read(Path path) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        if (data.length < 4) {
+            throw new IOException(path + " is not a saved game");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+            throw new IOException(path + " is damaged (checksum mismatch)");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+        if (in.readInt() != MAGIC) {
+            throw new IOException(path + " is not a saved game");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported saved game version " + version);
+        }
+        int ticksPerSecond = in.readShort();
+        if (ticksPerSecond != GameSimulation.TICKS_PER_SECOND) {
+            throw new IOException(path + " was saved at " + ticksPerSecond + " ticks per second, this build runs "
+                    + GameSimulation.TICKS_PER_SECOND);
+        }
+        int replayLength = in.readInt();
+        if (replayLength < 0 || replayLength > in.available()) {
+            throw new IOException(path + " is damaged (bad replay length)");
+        }
+        byte[] replayBytes = new byte[replayLength];
+        in.readFully(replayBytes);
+        Replay replay = Replay.fromBytes(replayBytes, path + " (replay)");
+        try {
+            return new GameSnapshot(replay, in);
+        } catch (IOException e) {
+            throw new IOException(path + " is damaged (" + e.getMessage() + ")", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+// HeadlessRunner plays complete games with no window, as fast as the CPU allows.
+// The paddle simply follows the ball (the "follow" bot). Each game gets its own seed derived from the base
+// seed and time comes from a manual clock, so the same arguments always print the same results.
+//
+// Usage: java HeadlessRunner [games] [seed]
+public class HeadlessRunner {
+
+    // Games still running after this many ticks (10 minutes of play) are cut off.
+    static final int MAX_TICKS_PER_GAME = GameSimulation.TICKS_PER_SECOND * 60 * 10;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+
+        int wins = 0;
+        long totalScore = 0;
+        long totalTicks = 0;
+        long start = System.nanoTime();
+
+        for (int g = 0; g < games; g++) {
+            GameClock.Manual clock = new GameClock.Manual();
+            GameSimulation simulation = new GameSimulation(seed + g, clock);
+            simulation.resume();
+            PaddleController bot = PaddleBots.create("follow", seed + g);
+
+            int ticks = 0;
+            while (simulation.getOutcome() == GameSimulation.Outcome.RUNNING && ticks < MAX_TICKS_PER_GAME) {
+                simulation.setPaddleDirection(bot.direction(simulation));
+                ticks++;
+                clock.set(ticks * 1000L / GameSimulation.TICKS_PER_SECOND);
+                simulation.tick();
+            }
+
+            if (simulation.getOutcome() == GameSimulation.Outcome.WON) {
+                wins++;
+            }
+            totalScore += simulation.getScore();
+            totalTicks += ticks;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Games: %d, wins: %d, average score: %.1f, average length: %.1f s%n",
+                games, wins, totalScore / (double) games,
+                totalTicks / (double) games / GameSimulation.TICKS_PER_SECOND);
+        System.out.printf("Simulated %d ticks in %.2f s (%.0f games/s)%n",
+                totalTicks, seconds, games / seconds);
+    }
+}
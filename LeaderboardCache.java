@@ -0,0 +1,140 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// LeaderboardCache keeps the top high scores in memory so the UI never waits on the
+// database. Reads return the current list immediately; a list older than the TTL is
+// still served while a background refresh replaces it. Scores saved from this game are
+// merged in right away, before the database has them.
+public class LeaderboardCache {
+
+    static final long TTL_MS = 60_000;
+
+    // Loads the best scores from the database, best first.
+    interface Loader {
+        List<ScoreRecord> load(int limit) throws SQLException;
+    }
+
+    private final Loader loader;
+    private final int capacity;
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "leaderboard-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    // Immutable, best first, at most capacity entries. Replaced as a whole.
+    private volatile List<ScoreRecord> top = Collections.emptyList();
+    private volatile long loadedAt; // System.nanoTime() of the last successful load; 0 = never
+    private volatile String lastError;
+
+    // Scores offered locally that the last load didn't contain yet (still queued for
+    // writing). Re-merged after every load until the database has them. Guarded by this.
+    private final List<ScoreRecord> unconfirmed = new ArrayList<>();
+
+    public LeaderboardCache(Loader loader, int capacity) {
+        this.loader = loader;
+        this.capacity = capacity;
+    }
+
+    // Starts loading in the background, so the first read already has data.
+    public void warm() {
+        refreshAsync();
+    }
+
+    // The best scores, best first, at most limit (up to the capacity). Never blocks.
+    public List<ScoreRecord> top(int limit) {
+        if (loadedAt == 0 || System.nanoTime() - loadedAt > TimeUnit.MILLISECONDS.toNanos(TTL_MS)) {
+            refreshAsync();
+        }
+        List<ScoreRecord> current = top;
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+
+    // True once the first load has finished.
+    public boolean isLoaded() {
+        return loadedAt != 0;
+    }
+
+    // Why the last load failed, or null if it didn't.
+    public String getLastError() {
+        return lastError;
+    }
+
+    // Adds a score saved from this game without waiting for the database.
+    public synchronized void offer(ScoreRecord entry) {
+        List<ScoreRecord> merged = new ArrayList<>(top);
+        if (insert(merged, entry)) {
+            top = Collections.unmodifiableList(merged);
+            unconfirmed.add(entry);
+        }
+    }
+
+    private void refreshAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            refresher.execute(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        try {
+            List<ScoreRecord> loaded = new ArrayList<>(loader.load(capacity));
+            publish(loaded);
+            lastError = null;
+        } catch (SQLException | RuntimeException e) {
+            lastError = e.getMessage();
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private synchronized void publish(List<ScoreRecord> loaded) {
+        List<ScoreRecord> fromDatabase = new ArrayList<>(loaded);
+        for (Iterator<ScoreRecord> it = unconfirmed.iterator(); it.hasNext(); ) {
+            ScoreRecord entry = it.next();
+            if (removeMatch(fromDatabase, entry)) {
+                it.remove(); // The database has it now
+            } else if (!insert(loaded, entry)) {
+                it.remove(); // No longer good enough for the top list, so it never will be again
+            }
+        }
+        top = Collections.unmodifiableList(loaded);
+        loadedAt = System.nanoTime();
+    }
+
+    // Inserts entry into a best-first list, keeping at most capacity entries.
+    // Returns false if it doesn't make the list.
+    private boolean insert(List<ScoreRecord> list, ScoreRecord entry) {
+        int i = list.size();
+        while (i > 0 && list.get(i - 1).score < entry.score) {
+            i--;
+        }
+        if (i >= capacity) {
+            return false;
+        }
+        list.add(i, entry);
+        if (list.size() > capacity) {
+            list.remove(list.size() - 1);
+        }
+        return true;
+    }
+
+    private static boolean removeMatch(List<ScoreRecord> list, ScoreRecord entry) {
+        for (int i = 0; i < list.size(); i++) {
+            // The database stores timestamps to the second, so only name and score are compared
+            ScoreRecord candidate = list.get(i);
+            if (candidate.score == entry.score && candidate.name.equals(entry.name)) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
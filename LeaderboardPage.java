@@ -0,0 +1,28 @@
+import java.util.Collections;
+import java.util.List;
+
+// One page of the leaderboard, best first. Remembers its last row so the next page can
+// start right after it (see DatabaseManager.getScoresPage).
+public final class LeaderboardPage {
+
+    private final List<ScoreRecord> entries;
+    final int lastScore;
+    final int lastId;
+    private final boolean hasMore;
+
+    LeaderboardPage(List<ScoreRecord> entries, int lastId, boolean hasMore) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.lastScore = entries.isEmpty() ? 0 : entries.get(entries.size() - 1).getScore();
+        this.lastId = lastId;
+        this.hasMore = hasMore;
+    }
+
+    public List<ScoreRecord> getEntries() {
+        return entries;
+    }
+
+    // True if there is at least one more page.
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
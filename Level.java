@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// Level is one brick layout in the binary level format, read straight out of a byte
+// buffer (normally a slice of a memory-mapped LevelPack). Only the small header is read
+// up front; the bricks are decoded when a game starts on the level, so opening a pack of
+// hundreds of levels, or one huge level, costs next to nothing.
+//
+// Layout: int brick count, short cell width, short cell height, short name length,
+// UTF-8 name, then one 16-byte record per brick: short x, short y, short width,
+// short height, int ARGB color, byte type, byte hit points, 2 reserved bytes.
+public final class Level {
+
+    static final int RECORD_SIZE = 16;
+    private static final int HEADER_SIZE = 10; // Before the name
+
+    private final ByteBuffer data;
+    private final String name;
+    private final int brickCount;
+    private final int cellWidth, cellHeight;
+    private final int recordsOffset;
+    private int checksum;
+    private boolean checksummed;
+
+    // Reads a level's header. data must hold exactly one level, from position 0.
+    Level(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_SIZE) {
+            throw new IOException("Level is truncated");
+        }
+        brickCount = data.getInt(0);
+        cellWidth = data.getShort(4);
+        cellHeight = data.getShort(6);
+        int nameLength = data.getShort(8) & 0xFFFF;
+        recordsOffset = HEADER_SIZE + nameLength;
+        if (brickCount < 0 || cellWidth <= 0 || cellHeight <= 0
+                || (long) recordsOffset + (long) brickCount * RECORD_SIZE != data.limit()) {
+            throw new IOException("Level is damaged");
+        }
+        byte[] nameBytes = new byte[nameLength];
+        for (int i = 0; i < nameLength; i++) {
+            nameBytes[i] = data.get(HEADER_SIZE + i);
+        }
+        name = new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    // Encodes a freshly laid out field as a level. cellWidth/cellHeight size the
+    // collision grid, normally the brick pitch.
+    static Level encode(String name, BrickField bricks, int cellWidth, int cellHeight) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + nameBytes.length + bricks.size() * RECORD_SIZE);
+        data.putInt(bricks.size());
+        data.putShort((short) cellWidth);
+        data.putShort((short) cellHeight);
+        data.putShort((short) nameBytes.length);
+        data.put(nameBytes);
+        for (int i = 0; i < bricks.size(); i++) {
+            data.putShort((short) bricks.getX(i));
+            data.putShort((short) bricks.getY(i));
+            data.putShort((short) bricks.getWidth(i));
+            data.putShort((short) bricks.getHeight(i));
+            data.putInt(bricks.getColor(i));
+            data.put((byte) bricks.getType(i));
+            data.put((byte) bricks.getHitPoints(i));
+            data.putShort((short) 0);
+        }
+        data.flip();
+        try {
+            return new Level(data);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Level " + name + " is too large to encode", e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBrickCount() {
+        return brickCount;
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    // Decodes the bricks into a new field, all alive and at full hit points.
+    public BrickField createField() {
+        BrickField field = new BrickField(brickCount);
+        ByteBuffer records = data.duplicate();
+        records.position(recordsOffset);
+        for (int i = 0; i < brickCount; i++) {
+            int x = records.getShort();
+            int y = records.getShort();
+            int width = records.getShort();
+            int height = records.getShort();
+            int argb = records.getInt();
+            int type = records.get();
+            int hitPoints = records.get();
+            records.getShort();
+            field.add(x, y, width, height, argb, type, hitPoints);
+        }
+        return field;
+    }
+
+    // CRC32 of the level's bytes, so a replay can tell whether it is being played back
+    // on the level it was recorded on.
+    public synchronized int checksum() {
+        if (!checksummed) {
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate());
+            checksum = (int) crc.getValue();
+            checksummed = true;
+        }
+        return checksum;
+    }
+
+    // The encoded level, for writing into a pack.
+    ByteBuffer bytes() {
+        return data.duplicate();
+    }
+}
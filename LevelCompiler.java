@@ -0,0 +1,49 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// LevelCompiler builds a level pack from text levels (see LevelText). Directories are
+// expanded to the *.txt files in them, in name order, which is the order they are played in.
+//
+// Usage: java LevelCompiler output.brkl level.txt|directory [more ...]
+public class LevelCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java LevelCompiler output.brkl level.txt|directory [more ...]");
+            System.exit(2);
+        }
+        List<Path> sources = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path path = Paths.get(args[i]);
+            if (Files.isDirectory(path)) {
+                List<Path> files = new ArrayList<>();
+                try (DirectoryStream<Path> dir = Files.newDirectoryStream(path, "*.txt")) {
+                    dir.forEach(files::add);
+                }
+                Collections.sort(files);
+                sources.addAll(files);
+            } else {
+                sources.add(path);
+            }
+        }
+
+        List<Level> levels = new ArrayList<>();
+        long bricks = 0;
+        for (Path source : sources) {
+            Level level = LevelText.parse(source);
+            levels.add(level);
+            bricks += level.getBrickCount();
+            System.out.printf("%3d. %s (%d bricks)%n", levels.size(), level.getName(), level.getBrickCount());
+        }
+        Path output = Paths.get(args[0]);
+        LevelPack.write(output, levels);
+        System.out.printf("Wrote %d levels, %d bricks, to %s (%d bytes)%n",
+                levels.size(), bricks, output, Files.size(output));
+    }
+}
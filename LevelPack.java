@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// LevelPack is a file of many levels in the binary level format, memory-mapped so that
+// opening it reads nothing but the index. The OS pages a level in when a game starts on
+// it, which makes switching levels instant however many the pack holds.
+// Packs are built from text levels with LevelCompiler.
+//
+// Layout: int magic "BRKL", byte version, 3 reserved bytes, int level count, then
+// (int offset, int length) per level, then the levels themselves (see Level).
+public final class LevelPack {
+
+    static final int MAGIC = 0x42524B4C; // "BRKL"
+    static final int VERSION = 1;
+    static final String DEFAULT_PATH = System.getProperty("breakout.levels", "resources/levels.brkl");
+    private static final int HEADER_SIZE = 12;
+    private static final int INDEX_ENTRY_SIZE = 8;
+
+    private final ByteBuffer data;
+    private final Level[] levels; // Each read on first use
+
+    private LevelPack(ByteBuffer data, int levelCount) {
+        this.data = data;
+        this.levels = new Level[levelCount];
+    }
+
+    // Maps a pack file and checks its header and index.
+    public static LevelPack open(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large for a level pack");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after close
+        }
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a level pack");
+        }
+        int version = data.get(4);
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported level pack version " + version);
+        }
+        int levelCount = data.getInt(8);
+        if (levelCount < 0 || HEADER_SIZE + (long) levelCount * INDEX_ENTRY_SIZE > data.limit()) {
+            throw new IOException(path + " is damaged (bad level index)");
+        }
+        for (int i = 0; i < levelCount; i++) {
+            long offset = data.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE);
+            long length = data.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE + 4);
+            if (offset < 0 || length < 0 || offset + length > data.limit()) {
+                throw new IOException(path + " is damaged (level " + (i + 1) + " out of bounds)");
+            }
+        }
+        return new LevelPack(data, levelCount);
+    }
+
+    // Opens the pack at -Dbreakout.levels (default resources/levels.brkl). Returns null if
+    // there is none, or it can't be read, in which case games use random layouts.
+    public static LevelPack openDefault() {
+        if (DEFAULT_PATH.isEmpty() || !Files.isRegularFile(Paths.get(DEFAULT_PATH))) {
+            return null;
+        }
+        try {
+            LevelPack pack = open(Paths.get(DEFAULT_PATH));
+            return pack.size() > 0 ? pack : null;
+        } catch (IOException e) {
+            System.err.println("Failed to open levels, using random layouts: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int size() {
+        return levels.length;
+    }
+
+    // Level i (0-based). Only its header is read here; see Level.createField().
+    public synchronized Level get(int i) throws IOException {
+        Level level = levels[i];
+        if (level == null) {
+            int offset = data.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE);
+            int length = data.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE + 4);
+            ByteBuffer slice = data.duplicate();
+            slice.limit(offset + length);
+            slice.position(offset);
+            try {
+                level = new Level(slice.slice());
+            } catch (IOException e) {
+                throw new IOException("Level " + (i + 1) + ": " + e.getMessage(), e);
+            }
+            levels[i] = level;
+        }
+        return level;
+    }
+
+    // Writes levels as a pack. The file is replaced atomically, so a running game that
+    // has the old pack mapped keeps working.
+    public static void write(Path path, List<Level> levels) throws IOException {
+        int offset = HEADER_SIZE + levels.size() * INDEX_ENTRY_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(offset);
+        header.putInt(MAGIC);
+        header.put((byte) VERSION);
+        header.put(new byte[3]);
+        header.putInt(levels.size());
+        for (Level level : levels) {
+            int length = level.bytes().remaining();
+            header.putInt(offset);
+            header.putInt(length);
+            offset += length;
+            if (offset < 0) {
+                throw new IOException("Levels are too large for one pack");
+            }
+        }
+        header.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (Level level : levels) {
+                writeFully(channel, level.bytes());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// LevelText reads the human-editable level format and encodes it as a binary Level.
+// A level is drawn as a grid of characters, one per brick, with a key saying what each
+// character means:
+//
+//   # Comments start with '#' (before the grid only)
+//   name Fortress
+//   brick 70 30 5          width, height and gap of every brick, in pixels
+//   origin 25 50           top-left of the grid; optional, centered at y 50 by default
+//   key R e04848 normal    character, RRGGBB color, type
+//   key T 9090a0 tough 3   tough bricks take the given number of hits (default 2)
+//   key X 505050 unbreakable
+//   grid
+//   RRRRRRRRRR
+//   R.TTTTTT.R             '.' or a space leaves a cell empty
+final class LevelText {
+
+    private LevelText() {
+    }
+
+    static Level parse(Path path) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(path.toString(), in);
+        }
+    }
+
+    // Parses one level; source names the input in error messages.
+    static Level parse(String source, BufferedReader in) throws IOException {
+        String name = null;
+        int width = 0, height = 0, gap = 0;
+        int originX = -1, originY = 50;
+        int[] colors = new int[128];
+        int[] types = new int[128];
+        int[] hitPoints = new int[128];
+        boolean[] defined = new boolean[128];
+        List<String> rows = new ArrayList<>();
+
+        int lineNumber = 0;
+        String line;
+        boolean inGrid = false;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (inGrid) {
+                rows.add(line);
+                continue;
+            }
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] words = trimmed.split("\\s+");
+            String where = source + ":" + lineNumber + ": ";
+            try {
+                switch (words[0].toLowerCase(Locale.ROOT)) {
+                    case "name":
+                        name = trimmed.substring(words[0].length()).trim();
+                        break;
+                    case "brick":
+                        expectWords(words, 4, 4, where);
+                        width = Integer.parseInt(words[1]);
+                        height = Integer.parseInt(words[2]);
+                        gap = Integer.parseInt(words[3]);
+                        if (width <= 0 || height <= 0 || gap < 0) {
+                            throw new IOException(where + "brick size must be positive");
+                        }
+                        break;
+                    case "origin":
+                        expectWords(words, 3, 3, where);
+                        originX = Integer.parseInt(words[1]);
+                        originY = Integer.parseInt(words[2]);
+                        break;
+                    case "key":
+                        expectWords(words, 4, 5, where);
+                        if (words[1].length() != 1 || words[1].charAt(0) >= 128 || words[1].charAt(0) == '.') {
+                            throw new IOException(where + "key must be a single ASCII character other than '.'");
+                        }
+                        char key = words[1].charAt(0);
+                        colors[key] = 0xFF000000 | Integer.parseInt(words[2], 16);
+                        types[key] = parseType(words[3], where);
+                        hitPoints[key] = words.length > 4 ? Integer.parseInt(words[4])
+                                : types[key] == BrickField.TOUGH ? 2 : 1;
+                        if (hitPoints[key] < 1 || hitPoints[key] > 127) {
+                            throw new IOException(where + "hit points must be between 1 and 127");
+                        }
+                        defined[key] = true;
+                        break;
+                    case "grid":
+                        inGrid = true;
+                        break;
+                    default:
+                        throw new IOException(where + "unknown setting '" + words[0] + "'");
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(where + "bad number: " + e.getMessage(), e);
+            }
+        }
+
+        if (width == 0) {
+            throw new IOException(source + ": missing 'brick <width> <height> <gap>'");
+        }
+        if (!inGrid) {
+            throw new IOException(source + ": missing 'grid'");
+        }
+        while (!rows.isEmpty() && rows.get(rows.size() - 1).trim().isEmpty()) {
+            rows.remove(rows.size() - 1);
+        }
+        int cols = 0;
+        int bricks = 0;
+        for (String row : rows) {
+            cols = Math.max(cols, row.length());
+            for (int c = 0; c < row.length(); c++) {
+                bricks += row.charAt(c) != '.' && row.charAt(c) != ' ' ? 1 : 0;
+            }
+        }
+        if (originX < 0) {
+            originX = (GameSimulation.WIDTH - cols * (width + gap)) / 2;
+        }
+
+        BrickField field = new BrickField(bricks);
+        int gridLine = lineNumber - rows.size();
+        for (int r = 0; r < rows.size(); r++) {
+            String row = rows.get(r);
+            for (int c = 0; c < row.length(); c++) {
+                char key = row.charAt(c);
+                if (key == '.' || key == ' ') {
+                    continue;
+                }
+                String where = source + ":" + (gridLine + r + 1) + ": ";
+                if (key >= 128 || !defined[key]) {
+                    throw new IOException(where + "no key for '" + key + "'");
+                }
+                int x = originX + c * (width + gap);
+                int y = originY + r * (height + gap);
+                if (x < 0 || y < 0 || x + width > GameSimulation.WIDTH || y + height > GameSimulation.HEIGHT) {
+                    throw new IOException(where + "brick at column " + (c + 1) + " is off the playfield");
+                }
+                field.add(x, y, width, height, colors[key], types[key], hitPoints[key]);
+            }
+        }
+        if (name == null) {
+            name = source;
+        }
+        return Level.encode(name, field, width + gap, height + gap);
+    }
+
+    private static int parseType(String word, String where) throws IOException {
+        switch (word.toLowerCase(Locale.ROOT)) {
+            case "normal":
+                return BrickField.NORMAL;
+            case "tough":
+                return BrickField.TOUGH;
+            case "unbreakable":
+                return BrickField.UNBREAKABLE;
+            default:
+                throw new IOException(where + "unknown brick type '" + word + "' (normal, tough or unbreakable)");
+        }
+    }
+
+    private static void expectWords(String[] words, int min, int max, String where) throws IOException {
+        if (words.length < min || words.length > max) {
+            throw new IOException(where + "'" + words[0] + "' takes " + (min == max ? min - 1 : (min - 1) + " or " + (max - 1))
+                    + " values");
+        }
+    }
+}
@@ -0,0 +1,342 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+// LocalScoreLog is an append-only file of high scores on the local disk. append() never
+// blocks on I/O: a writer thread appends whatever has been queued and fsyncs once per
+// batch. A second file remembers how far the log has been uploaded to MySQL, so scores
+// recorded while the database is unreachable are uploaded later (see ScoreWriter).
+//
+// Record layout: int payload length, payload (long epoch millis, int score, short name
+// length, UTF-8 name, long elapsed millis), int CRC32 of the payload. Logs written before
+// the elapsed time was recorded end the payload after the name; those read back as 0.
+// A torn record at the end of the file, left by a crash mid-write, is cut off when the
+// log is opened.
+public class LocalScoreLog implements AutoCloseable {
+
+    static final String DEFAULT_PATH = "scores.log";
+    static final int MAX_NAME_CHARS = 255; // What the highscores.name column holds
+    static final int MAX_NAME_BYTES = 1024; // MAX_NAME_CHARS characters of up to 4 UTF-8 bytes each
+    private static final int HEADER_BYTES = 4;
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 4 + 2;
+    private static final int ELAPSED_BYTES = 8;
+    private static final int CRC_BYTES = 4;
+
+    // Queued by close() to stop the writer. The channel is closed by interrupts, so the
+    // writer thread must never be interrupted.
+    private static final ScoreRecord END = new ScoreRecord("", 0, 0, 0);
+
+    private final FileChannel channel;
+    private final Path syncedPath;
+    private final Path rejectedPath;
+    private final LinkedBlockingQueue<ScoreRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closing;
+
+    // Guarded by this: end of the records that are on disk and fsynced, and the end of
+    // the records that have been uploaded.
+    private long durableEnd;
+    private long syncedOffset;
+
+    private LocalScoreLog(FileChannel channel, Path syncedPath, Path rejectedPath, long durableEnd, long syncedOffset) {
+        this.channel = channel;
+        this.syncedPath = syncedPath;
+        this.rejectedPath = rejectedPath;
+        this.durableEnd = durableEnd;
+        this.syncedOffset = syncedOffset;
+        this.writer = new Thread(this::writeLoop, "score-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Opens the log at the path given by -Dbreakout.scorelog, or scores.log.
+    public static LocalScoreLog open() throws IOException {
+        return open(Paths.get(System.getProperty("breakout.scorelog", DEFAULT_PATH)));
+    }
+
+    public static LocalScoreLog open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = scanValidEnd(channel);
+            if (end < channel.size()) {
+                channel.truncate(end); // Drop a torn record from an earlier crash
+                channel.force(true);
+            }
+            Path syncedPath = path.resolveSibling(path.getFileName() + ".synced");
+            long synced = readSyncedMark(channel, syncedPath, end);
+            Path rejectedPath = path.resolveSibling(path.getFileName() + ".rejected");
+            return new LocalScoreLog(channel, syncedPath, rejectedPath, end, synced);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Queues a score to be written. Only fails once the log is closed.
+    public void append(ScoreRecord record) throws IOException {
+        if (closing) {
+            throw new IOException("Score log is closed");
+        }
+        queue.add(record);
+    }
+
+    // Waits up to timeoutMillis for durable records past offset. Returns true if there are any.
+    public synchronized boolean awaitRecordsAfter(long offset, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (durableEnd <= offset && remaining > 0 && !closing) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return durableEnd > offset;
+    }
+
+    // Reads up to max durable records starting at offset into out and returns the offset
+    // just past the last one read.
+    public long read(long offset, int max, List<ScoreRecord> out) throws IOException {
+        long end;
+        synchronized (this) {
+            end = durableEnd;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset < end && max-- > 0) {
+            header.clear();
+            readFully(header, offset);
+            int length = header.getInt(0);
+            ByteBuffer record = ByteBuffer.allocate(length + CRC_BYTES);
+            readFully(record, offset + HEADER_BYTES);
+            out.add(decode(record));
+            offset += HEADER_BYTES + length + CRC_BYTES;
+        }
+        return offset;
+    }
+
+    public synchronized long getSyncedOffset() {
+        return syncedOffset;
+    }
+
+    // Records that everything before offset has been uploaded. The offset is written to
+    // a temporary file and moved into place, so a crash leaves either the old or the new one.
+    public void markSynced(long offset) throws IOException {
+        Path temp = syncedPath.resolveSibling(syncedPath.getFileName() + ".tmp");
+        Files.write(temp, ByteBuffer.allocate(8).putLong(0, offset).array());
+        Files.move(temp, syncedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            syncedOffset = offset;
+        }
+    }
+
+    // Keeps a record the database refused for good (bad data, a constraint) in a text file
+    // next to the log, one line per record, so it is out of the way of the upload but not lost.
+    public synchronized void reject(ScoreRecord record, String reason) throws IOException {
+        String line = record.getTimestamp() + "\t" + record.getScore() + "\t" + record.getElapsedMillis() + "\t"
+                + record.getName().replaceAll("[\t\r\n]", " ") + "\t" + reason.replaceAll("[\t\r\n]", " ") + "\n";
+        Files.write(rejectedPath, line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Wakes up threads waiting in awaitRecordsAfter(), e.g. so they can notice a shutdown.
+    public synchronized void wakeWaiters() {
+        notifyAll();
+    }
+
+    // Writes out queued scores, then closes the file.
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        queue.add(END);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        wakeWaiters();
+        channel.close();
+    }
+
+    private void writeLoop() {
+        List<ScoreRecord> batch = new ArrayList<>();
+        boolean end = false;
+        while (!end) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // Not expected; close() uses END instead
+            }
+            queue.drainTo(batch);
+            end = batch.remove(END);
+            while (!batch.isEmpty()) {
+                try {
+                    writeBatch(batch);
+                    batch.clear();
+                } catch (IOException e) {
+                    // Keep the batch and try again; a full or failing disk should not lose scores
+                    System.err.println("Could not write to the score log: " + e.getMessage());
+                    if (end) {
+                        return; // Shutting down; nothing more we can do
+                    }
+                    pauseBeforeRetry();
+                }
+            }
+        }
+    }
+
+    // Appends the batch with one write and one fsync, then makes it visible to readers.
+    private void writeBatch(List<ScoreRecord> batch) throws IOException {
+        int size = 0;
+        List<byte[]> names = new ArrayList<>(batch.size());
+        for (ScoreRecord record : batch) {
+            byte[] name = encodeName(record.name);
+            names.add(name);
+            size += HEADER_BYTES + FIXED_PAYLOAD_BYTES + name.length + ELAPSED_BYTES + CRC_BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < batch.size(); i++) {
+            ScoreRecord record = batch.get(i);
+            byte[] name = names.get(i);
+            int start = buffer.position();
+            int length = FIXED_PAYLOAD_BYTES + name.length + ELAPSED_BYTES;
+            buffer.putInt(length);
+            buffer.putLong(record.timestamp).putInt(record.score).putShort((short) name.length).put(name);
+            buffer.putLong(record.elapsedMillis);
+            crc.reset();
+            crc.update(buffer.array(), start + HEADER_BYTES, length);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+
+        long position;
+        synchronized (this) {
+            position = durableEnd;
+        }
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+        synchronized (this) {
+            durableEnd = position;
+            notifyAll();
+        }
+    }
+
+    private static void pauseBeforeRetry() {
+        try {
+            Thread.sleep(1_000);
+        } catch (InterruptedException e) {
+            // Not expected; just retry sooner
+        }
+    }
+
+    // Reads how far the log has been uploaded. A mark that is damaged or doesn't fall
+    // between two records can't be trusted, so everything is uploaded again: duplicates
+    // in the database are better than scores lost.
+    private static long readSyncedMark(FileChannel channel, Path syncedPath, long end) throws IOException {
+        if (!Files.exists(syncedPath)) {
+            return 0;
+        }
+        byte[] mark = Files.readAllBytes(syncedPath);
+        long synced = mark.length == 8 ? Math.min(ByteBuffer.wrap(mark).getLong(), end) : -1;
+        if (synced < 0 || !isRecordStart(channel, synced)) {
+            System.err.println("Damaged upload mark " + syncedPath + "; uploading the whole score log again");
+            return 0;
+        }
+        return synced;
+    }
+
+    // True if a record starts at offset, or offset is the end of the records. Only for
+    // offsets up to the end found by scanValidEnd.
+    private static boolean isRecordStart(FileChannel channel, long offset) throws IOException {
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position < offset) {
+            header.clear();
+            channel.read(header, position);
+            position += HEADER_BYTES + header.getInt(0) + CRC_BYTES;
+        }
+        return position == offset;
+    }
+
+    // Finds the end of the last complete, intact record.
+    private static long scanValidEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, offset);
+            int length = header.getInt(0);
+            if (length < FIXED_PAYLOAD_BYTES || length > FIXED_PAYLOAD_BYTES + MAX_NAME_BYTES + ELAPSED_BYTES
+                    || offset + HEADER_BYTES + length + CRC_BYTES > size) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length + CRC_BYTES);
+            while (record.hasRemaining()) {
+                channel.read(record, offset + HEADER_BYTES + record.position());
+            }
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != record.getInt(length)) {
+                break;
+            }
+            offset += HEADER_BYTES + length + CRC_BYTES;
+        }
+        return offset;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Score log ends in the middle of a record");
+            }
+        }
+    }
+
+    // record holds the payload followed by the CRC.
+    private static ScoreRecord decode(ByteBuffer record) {
+        long timestamp = record.getLong(0);
+        int score = record.getInt(8);
+        int nameLength = record.getShort(12) & 0xFFFF;
+        String name = new String(record.array(), FIXED_PAYLOAD_BYTES, nameLength, StandardCharsets.UTF_8);
+        int elapsedAt = FIXED_PAYLOAD_BYTES + nameLength;
+        long elapsed = record.capacity() - CRC_BYTES >= elapsedAt + ELAPSED_BYTES ? record.getLong(elapsedAt) : 0;
+        return new ScoreRecord(name, score, elapsed, timestamp);
+    }
+
+    // UTF-8 bytes of the name, cut to MAX_NAME_CHARS characters so the database accepts
+    // it, and to MAX_NAME_BYTES for safety.
+    private static byte[] encodeName(String name) {
+        if (name.codePointCount(0, name.length()) > MAX_NAME_CHARS) {
+            name = name.substring(0, name.offsetByCodePoints(0, MAX_NAME_CHARS));
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_NAME_BYTES) {
+            return bytes;
+        }
+        int length = MAX_NAME_BYTES;
+        while ((bytes[length] & 0xC0) == 0x80) {
+            length--; // Don't split a multi-byte character
+        }
+        byte[] cut = new byte[length];
+        System.arraycopy(bytes, 0, cut, 0, length);
+        return cut;
+    }
+}
@@ -0,0 +1,224 @@
+// LockstepSession plays a two-player game whose players are on different machines.
+// Both machines run the same deterministic simulation on the same inputs; only the
+// inputs travel (see NetplayLink). Two tricks hide the network's latency:
+//
+//   input delay  a key pressed now takes effect inputDelay ticks later, which gives it
+//                that long to reach the other machine before it is needed
+//   rollback     if the other player's input for a tick hasn't arrived by then, the game
+//                goes ahead guessing they kept doing what they did last. When the real
+//                input arrives and the guess was wrong, the game is rewound to the last
+//                tick both inputs were known for and played forward again, within a tick
+//
+// Two simulations are kept: the confirmed one only ever plays ticks whose inputs are
+// both known, so it is the same on both machines; the predicted one, which is what is
+// shown, is the confirmed one plus the ticks played on guesses. Rewinding is copying the
+// confirmed one over the predicted one. The game is over when the confirmed one says so.
+// Not thread-safe; everything runs on the game loop thread.
+final class LockstepSession {
+
+    static final int DEFAULT_INPUT_DELAY_TICKS = 3; // 50 ms: half of a 100 ms round trip
+    static final int MAX_PREDICTION_TICKS = 15; // Further ahead of the other player than this, wait for them
+    static final int CHECKSUM_INTERVAL_TICKS = GameSimulation.TICKS_PER_SECOND;
+    private static final int HISTORY = 256; // Ticks of input kept; more than prediction plus delay
+
+    private final int localPlayer;
+    private final int inputDelay;
+    private final GameClock.Manual confirmedClock = new GameClock.Manual();
+    private final GameClock.Manual predictedClock = new GameClock.Manual();
+    private final GameSimulation confirmed = new GameSimulation(0, confirmedClock);
+    private final GameSimulation predicted = new GameSimulation(0, predictedClock);
+
+    // Directions by tick, in rings of HISTORY ticks. Local input is known for ticks below
+    // localInputEnd, the other player's below remoteInputEnd. guessed holds the remote
+    // direction the predicted simulation used for each tick it played.
+    private final byte[] localInputs = new byte[HISTORY];
+    private final byte[] remoteInputs = new byte[HISTORY];
+    private final byte[] guessed = new byte[HISTORY];
+    private int localInputEnd;
+    private int remoteInputEnd;
+    private int confirmedTick; // Ticks the confirmed simulation has played
+    private int predictedTick; // Ticks the predicted simulation has played
+    private boolean mispredicted; // A guess turned out wrong; roll back before the next tick
+
+    // Checksums of the confirmed game every CHECKSUM_INTERVAL_TICKS, to compare with the other side's
+    private final long[] checksums = new long[8];
+    private final int[] checksumTicks = {-1, -1, -1, -1, -1, -1, -1, -1};
+
+    // Statistics
+    private long rollbacks;
+    private long replayedTicks;
+
+    // Starts a game on level (null for a random layout) with the given seed. localPlayer
+    // is 0 or 1; both sides must agree on the seed, the level and the input delay.
+    LockstepSession(long seed, Level level, int localPlayer, int inputDelay) {
+        this.localPlayer = localPlayer;
+        this.inputDelay = inputDelay;
+        for (GameSimulation simulation : new GameSimulation[]{confirmed, predicted}) {
+            simulation.setTwoPlayer(true);
+            if (level != null) {
+                simulation.reset(seed, level);
+            } else {
+                simulation.reset(seed);
+            }
+            simulation.resume();
+        }
+        // Nobody can have pressed anything in the first inputDelay ticks
+        localInputEnd = inputDelay;
+        remoteInputEnd = inputDelay;
+    }
+
+    // False while the game is too far ahead of the other player's input to guess any
+    // further; the caller should skip the tick and try again on the next one.
+    boolean canAdvance() {
+        return predictedTick - confirmedTick < MAX_PREDICTION_TICKS && localInputEnd - confirmedTick < HISTORY;
+    }
+
+    // Plays one tick with the local player's current direction, which takes effect
+    // inputDelay ticks from now. Call only when canAdvance().
+    void advance(int localDirection) {
+        localInputs[localInputEnd % HISTORY] = (byte) Integer.signum(localDirection);
+        localInputEnd++;
+
+        confirm();
+        if (mispredicted) {
+            predicted.copyFrom(confirmed);
+            int target = predictedTick;
+            predictedTick = confirmedTick;
+            while (predictedTick < target) {
+                stepPredicted();
+                replayedTicks++;
+            }
+            rollbacks++;
+            mispredicted = false;
+        }
+        stepPredicted();
+    }
+
+    // Takes the other player's directions for ticks firstTick onwards. Ticks already
+    // known are skipped, and anything after a gap is left for a later resend.
+    void addRemoteInputs(int firstTick, byte[] directions, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            int tick = firstTick + i;
+            if (tick < remoteInputEnd) {
+                continue;
+            }
+            if (tick > remoteInputEnd || tick - confirmedTick >= HISTORY) {
+                return;
+            }
+            byte direction = (byte) Integer.signum(directions[offset + i]);
+            remoteInputs[tick % HISTORY] = direction;
+            if (tick < predictedTick && guessed[tick % HISTORY] != direction) {
+                mispredicted = true;
+            }
+            remoteInputEnd++;
+        }
+    }
+
+    // Plays the confirmed simulation through every tick whose inputs are both known,
+    // never past the predicted one.
+    private void confirm() {
+        int end = Math.min(Math.min(localInputEnd, remoteInputEnd), predictedTick);
+        while (confirmedTick < end) {
+            int slot = confirmedTick % HISTORY;
+            step(confirmed, confirmedClock, confirmedTick, localInputs[slot], remoteInputs[slot]);
+            confirmedTick++;
+            if (confirmedTick % CHECKSUM_INTERVAL_TICKS == 0) {
+                int entry = confirmedTick / CHECKSUM_INTERVAL_TICKS % checksums.length;
+                checksums[entry] = confirmed.checksum();
+                checksumTicks[entry] = confirmedTick;
+            }
+        }
+    }
+
+    // Plays the predicted simulation one tick, guessing the other player's input if it
+    // hasn't arrived yet.
+    private void stepPredicted() {
+        int slot = predictedTick % HISTORY;
+        byte remote;
+        if (predictedTick < remoteInputEnd) {
+            remote = remoteInputs[slot];
+        } else {
+            remote = remoteInputEnd > 0 ? remoteInputs[(remoteInputEnd - 1) % HISTORY] : 0;
+        }
+        guessed[slot] = remote;
+        step(predicted, predictedClock, predictedTick, localInputs[slot], remote);
+        predictedTick++;
+    }
+
+    private void step(GameSimulation simulation, GameClock.Manual clock, int tick, int local, int remote) {
+        simulation.setPaddleDirection(localPlayer, local);
+        simulation.setPaddleDirection(1 - localPlayer, remote);
+        clock.set((tick + 1) * 1000L / GameSimulation.TICKS_PER_SECOND);
+        simulation.tick();
+    }
+
+    // The game as it is shown: confirmed, plus the ticks played on guesses.
+    GameSimulation getPredicted() {
+        return predicted;
+    }
+
+    // The game as both players agree it is, up to getConfirmedTick().
+    GameSimulation getConfirmed() {
+        return confirmed;
+    }
+
+    // Over once the confirmed game is won or lost.
+    boolean isOver() {
+        return confirmed.getOutcome() != GameSimulation.Outcome.RUNNING;
+    }
+
+    int getLocalPlayer() {
+        return localPlayer;
+    }
+
+    int getInputDelay() {
+        return inputDelay;
+    }
+
+    int getPredictedTick() {
+        return predictedTick;
+    }
+
+    int getConfirmedTick() {
+        return confirmedTick;
+    }
+
+    // Local directions are known for ticks below this; getLocalInput() reads them.
+    int getLocalInputEnd() {
+        return localInputEnd;
+    }
+
+    // Local direction for a tick in [getLocalInputEnd() - HISTORY, getLocalInputEnd()).
+    byte getLocalInput(int tick) {
+        return localInputs[tick % HISTORY];
+    }
+
+    // The other player's directions are known for ticks below this.
+    int getRemoteInputEnd() {
+        return remoteInputEnd;
+    }
+
+    // The latest checkpoint: its tick (-1 if none yet) and checksum.
+    int getChecksumTick() {
+        return checksumTicks[confirmedTick / CHECKSUM_INTERVAL_TICKS % checksums.length];
+    }
+
+    long getChecksum() {
+        return checksums[confirmedTick / CHECKSUM_INTERVAL_TICKS % checksums.length];
+    }
+
+    // Checks the other side's checksum for a tick against ours. Returns false only on a
+    // known mismatch; ticks not checkpointed here (yet or any more) count as fine.
+    boolean checksumMatches(int tick, long checksum) {
+        int entry = tick / CHECKSUM_INTERVAL_TICKS % checksums.length;
+        return checksumTicks[entry] != tick || checksums[entry] == checksum;
+    }
+
+    long getRollbacks() {
+        return rollbacks;
+    }
+
+    long getReplayedTicks() {
+        return replayedTicks;
+    }
+}
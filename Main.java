@@ -2,6 +2,8 @@ import javax.swing.SwingUtilities;
 
 public class Main {
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new GameFrame());
+        RenderQuality.selectPipeline(); // Before anything starts AWT
+        RenderMode renderMode = RenderMode.fromArgs(args);
+        SwingUtilities.invokeLater(() -> new GameFrame(renderMode));
     }
 }
\ No newline at end of file
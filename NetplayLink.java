@@ -0,0 +1,322 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+
+// NetplayLink connects the two machines of a two-player game over UDP and carries the
+// LockstepSession's inputs between them. Every tick each side sends every input of its
+// own the other hasn't acknowledged yet, so a lost packet costs nothing but the next
+// one; no packet is ever resent as such. The host picks the seed, level and input delay
+// and sends them to the player who joins.
+//
+// Packets start with int magic "BRKN" and a type byte:
+//   HELLO  byte version                          joiner, until START arrives
+//   START  long seed, int level, int level checksum, byte input delay     host
+//   INPUT  int sender tick, int ack, byte frame advantage, int time, int echoed time,
+//          short echo delay, int checksum tick, long checksum, int first tick, short count,
+//          count direction bytes                                          both, every tick
+//
+// For trying things out on one machine, latency and loss can be simulated on sending.
+final class NetplayLink implements Closeable {
+
+    static final int MAGIC = 0x42524B4E; // "BRKN"
+    static final int VERSION = 1;
+    static final byte HELLO = 1;
+    static final byte START = 2;
+    static final byte INPUT = 3;
+    static final int MAX_INPUTS_PER_PACKET = 64;
+    static final int INPUT_HEADER_BYTES = 37; // After the type byte, up to and including the count
+    static final long HANDSHAKE_RESEND_MILLIS = 100;
+    static final long TIMEOUT_MILLIS = 5_000; // Silence before the other player counts as gone
+    static final int MIN_TICKS_BETWEEN_WAITS = 20;
+
+    // What the host decided the game is.
+    static final class Start {
+        final long seed;
+        final int level; // -1 for a random layout
+        final int levelChecksum;
+        final int inputDelay;
+
+        Start(long seed, int level, int levelChecksum, int inputDelay) {
+            this.seed = seed;
+            this.level = level;
+            this.levelChecksum = levelChecksum;
+            this.inputDelay = inputDelay;
+        }
+    }
+
+    private final DatagramChannel channel;
+    private final SocketAddress peer;
+    private final Start start;
+    private final boolean hosting; // The host resends START until the first INPUT arrives
+    private final ByteBuffer in = ByteBuffer.allocate(2048);
+    private final ByteBuffer out = ByteBuffer.allocate(2048);
+    private final byte[] directions = new byte[MAX_INPUTS_PER_PACKET];
+    private final long startNanos = System.nanoTime();
+
+    // Simulated network conditions: packets held back by latencyNanos, some dropped
+    private final long latencyNanos;
+    private final double loss;
+    private final Random random = new Random(1);
+    private final Queue<Object[]> held = new ArrayDeque<>(); // {Long due, byte[] packet}
+
+    // What the other side last told us
+    private boolean heardInput;
+    private int peerAck; // They have our inputs below this tick
+    private int peerTick;
+    private int peerAdvantage;
+    private int echoTime = -1; // Their time stamp to send back, and when it arrived
+    private long echoReceivedNanos;
+    private long lastHeardNanos = System.nanoTime();
+    private double roundTripMillis = -1; // Smoothed
+    private int desyncTick = -1; // First checkpoint where the games differed
+    private int ticksSinceWait;
+
+    private NetplayLink(DatagramChannel channel, SocketAddress peer, Start start, boolean hosting,
+                        long latencyMillis, double loss) {
+        this.channel = channel;
+        this.peer = peer;
+        this.start = start;
+        this.hosting = hosting;
+        this.latencyNanos = latencyMillis * 1_000_000;
+        this.loss = loss;
+    }
+
+    // Waits on port for a player to join, then tells them the game. latencyMillis and loss
+    // simulate a worse network on this side's sends; 0 for none.
+    static NetplayLink host(int port, Start start, long latencyMillis, double loss) throws IOException {
+        DatagramChannel channel = open(new InetSocketAddress(port));
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            while (true) {
+                buffer.clear();
+                SocketAddress from = channel.receive(buffer);
+                buffer.flip();
+                if (from != null && buffer.remaining() >= 6 && buffer.getInt() == MAGIC && buffer.get() == HELLO) {
+                    if (buffer.get() != VERSION) {
+                        throw new IOException(from + " runs a different version of the game");
+                    }
+                    NetplayLink link = new NetplayLink(channel, from, start, true, latencyMillis, loss);
+                    link.sendStart();
+                    return link;
+                }
+                sleep(10);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Joins the game hosted at address, waiting up to TIMEOUT_MILLIS for it to answer.
+    static NetplayLink join(InetSocketAddress address, long latencyMillis, double loss) throws IOException {
+        DatagramChannel channel = open(new InetSocketAddress(0));
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            long deadline = System.nanoTime() + TIMEOUT_MILLIS * 1_000_000;
+            long nextHello = 0;
+            while (System.nanoTime() < deadline) {
+                if (System.nanoTime() >= nextHello) {
+                    buffer.clear();
+                    buffer.putInt(MAGIC).put(HELLO).put((byte) VERSION).flip();
+                    channel.send(buffer, address);
+                    nextHello = System.nanoTime() + HANDSHAKE_RESEND_MILLIS * 1_000_000;
+                }
+                buffer.clear();
+                SocketAddress from = channel.receive(buffer);
+                buffer.flip();
+                if (from != null && buffer.remaining() >= 22 && buffer.getInt() == MAGIC && buffer.get() == START) {
+                    Start start = new Start(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.get());
+                    return new NetplayLink(channel, from, start, false, latencyMillis, loss);
+                }
+                sleep(10);
+            }
+            throw new IOException("No answer from " + address);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // The game both sides play.
+    Start getStart() {
+        return start;
+    }
+
+    private static DatagramChannel open(InetSocketAddress local) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.bind(local);
+        channel.configureBlocking(false);
+        return channel;
+    }
+
+    private void sendStart() throws IOException {
+        out.clear();
+        out.putInt(MAGIC).put(START);
+        out.putLong(start.seed).putInt(start.level).putInt(start.levelChecksum).put((byte) start.inputDelay);
+        out.flip();
+        send(out);
+    }
+
+    // Takes in every packet that has arrived and passes their inputs to the session.
+    // Throws if the other player has been silent for TIMEOUT_MILLIS.
+    void receive(LockstepSession session) throws IOException {
+        while (true) {
+            in.clear();
+            SocketAddress from = channel.receive(in);
+            if (from == null) {
+                break;
+            }
+            in.flip();
+            if (!from.equals(peer) || in.remaining() < 5 || in.getInt() != MAGIC) {
+                continue; // Not from this game
+            }
+            byte type = in.get();
+            if (type == INPUT && in.remaining() >= INPUT_HEADER_BYTES) {
+                readInput(session);
+            } else if (type == HELLO && hosting) {
+                sendStart(); // The joiner missed it
+            }
+        }
+        if (System.nanoTime() - lastHeardNanos > TIMEOUT_MILLIS * 1_000_000) {
+            throw new IOException("The other player stopped answering");
+        }
+    }
+
+    // Ignores the packet altogether if its count of directions doesn't match what came.
+    private void readInput(LockstepSession session) {
+        int count = in.getShort(in.position() + INPUT_HEADER_BYTES - 2);
+        if (count < 0 || count > in.remaining() - INPUT_HEADER_BYTES || count > MAX_INPUTS_PER_PACKET) {
+            return;
+        }
+        heardInput = true;
+        lastHeardNanos = System.nanoTime();
+        peerTick = Math.max(peerTick, in.getInt());
+        peerAck = Math.max(peerAck, in.getInt());
+        peerAdvantage = in.get();
+        echoTime = in.getInt();
+        echoReceivedNanos = System.nanoTime();
+        int echoed = in.getInt();
+        int echoDelay = in.getShort();
+        if (echoed >= 0) {
+            double sample = now() - echoed - echoDelay;
+            roundTripMillis = roundTripMillis < 0 ? sample : roundTripMillis * 0.9 + sample * 0.1;
+        }
+        int checksumTick = in.getInt();
+        long checksum = in.getLong();
+        if (checksumTick >= 0 && desyncTick < 0 && !session.checksumMatches(checksumTick, checksum)) {
+            desyncTick = checksumTick;
+        }
+        int firstTick = in.getInt();
+        in.getShort(); // count, checked above
+        in.get(directions, 0, count);
+        session.addRemoteInputs(firstTick, directions, 0, count);
+    }
+
+    // Sends the local inputs the other player hasn't acknowledged, and anything held back
+    // by simulated latency that is now due.
+    void send(LockstepSession session) throws IOException {
+        if (hosting && !heardInput) {
+            sendStart(); // Until the joiner shows it has the game
+        }
+        int end = session.getLocalInputEnd();
+        int first = Math.max(peerAck, end - MAX_INPUTS_PER_PACKET);
+        out.clear();
+        out.putInt(MAGIC).put(INPUT);
+        out.putInt(session.getPredictedTick());
+        out.putInt(session.getRemoteInputEnd());
+        out.put((byte) Math.max(-128, Math.min(127, getFrameAdvantage(session))));
+        out.putInt(now());
+        out.putInt(echoTime);
+        out.putShort((short) (echoTime >= 0 ? Math.min(Short.MAX_VALUE, (System.nanoTime() - echoReceivedNanos) / 1_000_000) : 0));
+        out.putInt(session.getChecksumTick());
+        out.putLong(session.getChecksum());
+        out.putInt(first);
+        out.putShort((short) (end - first));
+        for (int tick = first; tick < end; tick++) {
+            out.put(session.getLocalInput(tick));
+        }
+        out.flip();
+        send(out);
+        flushHeld();
+    }
+
+    // True if this side should skip a tick to let the other player catch up: it is
+    // further ahead of them than they are of it, so it would otherwise keep guessing.
+    boolean shouldWait(LockstepSession session) {
+        if (++ticksSinceWait < MIN_TICKS_BETWEEN_WAITS || !heardInput) {
+            return false;
+        }
+        if (getFrameAdvantage(session) - peerAdvantage >= 2) {
+            ticksSinceWait = 0;
+            return true;
+        }
+        return false;
+    }
+
+    // How many ticks ahead of the other player this side is, allowing for the ticks they
+    // have played since their last packet was sent.
+    private int getFrameAdvantage(LockstepSession session) {
+        double oneWayTicks = Math.max(0, roundTripMillis) / 2 * GameSimulation.TICKS_PER_SECOND / 1000;
+        return (int) Math.round(session.getPredictedTick() - (peerTick + oneWayTicks));
+    }
+
+    // True once the other player has every local input up to tick.
+    boolean isAcknowledged(int tick) {
+        return peerAck >= tick;
+    }
+
+    // Smoothed round-trip time, or -1 before the first measurement.
+    double getRoundTripMillis() {
+        return roundTripMillis;
+    }
+
+    // The first checkpoint tick at which the two games differed, or -1 if they never have.
+    int getDesyncTick() {
+        return desyncTick;
+    }
+
+    private void send(ByteBuffer packet) throws IOException {
+        if (loss > 0 && random.nextDouble() < loss) {
+            return;
+        }
+        if (latencyNanos > 0) {
+            byte[] copy = new byte[packet.remaining()];
+            packet.get(copy);
+            held.add(new Object[]{System.nanoTime() + latencyNanos, copy});
+            return;
+        }
+        channel.send(packet, peer);
+    }
+
+    private void flushHeld() throws IOException {
+        while (!held.isEmpty() && (Long) held.peek()[0] <= System.nanoTime()) {
+            channel.send(ByteBuffer.wrap((byte[]) held.poll()[1]), peer);
+        }
+    }
+
+    private int now() {
+        return (int) ((System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,290 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+
+// NetplayRunner plays a head-to-head game between two machines: both paddles share the
+// bottom of the playfield, the host's on the left half and the joiner's on the right, and
+// each player scores for the bricks their own hits break. The host picks the seed, the
+// level (from the default level pack, or a random layout without one) and the input delay.
+// Runs in a window with the arrow keys, or headless with a bot at the controls; either
+// way it prints the network statistics once a second and, at the end, the final checksum,
+// which must be the same on both machines.
+//
+// To try it on one machine, start a host and a joiner in two terminals, e.g. with 50 ms
+// of simulated latency each way:
+//   java NetplayRunner --host=7000 --latency=50
+//   java NetplayRunner --join=localhost:7000 --latency=50
+//
+// Usage: java NetplayRunner (--host=port | --join=host:port) [--bot=follow|predict|human]
+//            [--headless] [--level=N] [--seed=N] [--delay=ticks] [--latency=ms] [--loss=0..1]
+public class NetplayRunner {
+
+    static final long LINGER_MILLIS = 3_000; // After the game, time to let the last inputs arrive
+    static final Color SECOND_PADDLE = new Color(255, 150, 40);
+    private static final Font SCORE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 16);
+
+    private final LockstepSession session;
+    private final NetplayLink link;
+    private final PaddleController bot; // null: keyboard
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile int keyDirection;
+    private volatile FrameSnapshot frame; // Player 1's paddle; player 2's and the scores are drawn on top
+    private volatile int secondPaddleX;
+    private volatile int[] scores = {0, 0};
+    private volatile String[] stats = new String[0];
+    private volatile JPanel view; // null when headless
+    private IOException failure;
+
+    // Loop thread only
+    private int stalls;
+    private int loopTicks;
+    private long overAt; // System.nanoTime() when the game ended, 0 while it runs
+
+    private NetplayRunner(LockstepSession session, NetplayLink link, PaddleController bot) {
+        this.session = session;
+        this.link = link;
+        this.bot = bot;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Integer hostPort = null;
+        String joinAddress = null;
+        String botName = null;
+        boolean headless = false;
+        int levelIndex = 0;
+        long seed = System.nanoTime();
+        int delay = LockstepSession.DEFAULT_INPUT_DELAY_TICKS;
+        long latency = 0;
+        double loss = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) {
+                hostPort = Integer.parseInt(arg.substring("--host=".length()));
+            } else if (arg.startsWith("--join=")) {
+                joinAddress = arg.substring("--join=".length());
+            } else if (arg.startsWith("--bot=")) {
+                botName = arg.substring("--bot=".length());
+            } else if (arg.equals("--headless")) {
+                headless = true;
+            } else if (arg.startsWith("--level=")) {
+                levelIndex = Integer.parseInt(arg.substring("--level=".length())) - 1;
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--delay=")) {
+                delay = Integer.parseInt(arg.substring("--delay=".length()));
+            } else if (arg.startsWith("--latency=")) {
+                latency = Long.parseLong(arg.substring("--latency=".length()));
+            } else if (arg.startsWith("--loss=")) {
+                loss = Double.parseDouble(arg.substring("--loss=".length()));
+            } else {
+                usage("Unknown option " + arg);
+            }
+        }
+        if ((hostPort == null) == (joinAddress == null)) {
+            usage("Give exactly one of --host and --join");
+        }
+        if (headless && botName == null) {
+            usage("--headless needs a --bot to play");
+        }
+        if (delay < 0 || delay > LockstepSession.MAX_PREDICTION_TICKS) {
+            usage("--delay must be 0.." + LockstepSession.MAX_PREDICTION_TICKS);
+        }
+
+        LevelPack levels = LevelPack.openDefault();
+        NetplayLink link;
+        int player;
+        if (hostPort != null) {
+            int index = levels != null ? Math.floorMod(levelIndex, levels.size()) : -1;
+            int checksum = index >= 0 ? levels.get(index).checksum() : 0;
+            NetplayLink.Start start = new NetplayLink.Start(seed, index, checksum, delay);
+            System.out.println("Waiting for a player on port " + hostPort + "...");
+            link = NetplayLink.host(hostPort, start, latency, loss);
+            player = 0;
+        } else {
+            int colon = joinAddress.lastIndexOf(':');
+            InetSocketAddress address = new InetSocketAddress(joinAddress.substring(0, colon),
+                    Integer.parseInt(joinAddress.substring(colon + 1)));
+            link = NetplayLink.join(address, latency, loss);
+            player = 1;
+        }
+
+        NetplayLink.Start start = link.getStart();
+        Level level = null;
+        if (start.level >= 0) {
+            if (levels == null || start.level >= levels.size()
+                    || (level = levels.get(start.level)).checksum() != start.levelChecksum) {
+                link.close();
+                throw new IOException("The host plays level " + (start.level + 1) + ", which this machine doesn't have");
+            }
+        }
+        System.out.printf("Player %d: seed %d, %s, input delay %d ticks%n", player + 1, start.seed,
+                level != null ? "level " + (start.level + 1) + " '" + level.getName() + "'" : "random layout",
+                start.inputDelay);
+
+        LockstepSession session = new LockstepSession(start.seed, level, player, start.inputDelay);
+        PaddleController bot = botName != null ? PaddleBots.create(botName, start.seed, player) : null;
+        NetplayRunner runner = new NetplayRunner(session, link, bot);
+        if (!headless) {
+            SwingUtilities.invokeLater(runner::showWindow);
+        }
+        GameLoop loop = new GameLoop(GameSimulation.TICKS_PER_SECOND, runner::tick, runner::publishFrame);
+        loop.start();
+        runner.finished.await();
+        loop.stop();
+        link.close();
+        runner.printResult();
+        if (headless) {
+            System.exit(runner.failure != null ? 1 : 0);
+        }
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: java NetplayRunner (--host=port | --join=host:port) [--bot=follow|predict|human]");
+        System.err.println("           [--headless] [--level=N] [--seed=N] [--delay=ticks] [--latency=ms] [--loss=0..1]");
+        System.exit(2);
+    }
+
+    // --- Game loop ---
+
+    // One real-time tick: takes in the other player's inputs, plays a tick unless this
+    // side has to wait for them, and sends ours.
+    private void tick() {
+        if (finished.getCount() == 0) {
+            return;
+        }
+        try {
+            link.receive(session);
+            if (session.isOver()) {
+                if (overAt == 0) {
+                    overAt = System.nanoTime();
+                }
+                if (link.isAcknowledged(session.getLocalInputEnd())
+                        || System.nanoTime() - overAt > LINGER_MILLIS * 1_000_000) {
+                    finished.countDown();
+                    return;
+                }
+            } else if (session.canAdvance() && !link.shouldWait(session)) {
+                GameSimulation shown = session.getPredicted();
+                session.advance(bot != null ? bot.direction(shown) : keyDirection);
+            } else {
+                stalls++;
+            }
+            link.send(session);
+        } catch (IOException e) {
+            failure = e;
+            finished.countDown();
+            return;
+        }
+        if (++loopTicks % GameSimulation.TICKS_PER_SECOND == 0) {
+            reportStats();
+        }
+    }
+
+    private void reportStats() {
+        String[] lines = {
+                String.format("RTT %.0f ms", link.getRoundTripMillis()),
+                String.format("Tick %d, confirmed %d", session.getPredictedTick(), session.getConfirmedTick()),
+                String.format("Rollbacks %d (%d ticks replayed)", session.getRollbacks(), session.getReplayedTicks()),
+                String.format("Stalls %d", stalls)
+        };
+        stats = lines;
+        System.out.println(String.join(", ", lines));
+    }
+
+    private void publishFrame() {
+        if (view == null) {
+            return;
+        }
+        // Once the game is over, show how it really ended rather than the last guess
+        GameSimulation simulation = session.isOver() ? session.getConfirmed() : session.getPredicted();
+        Paddle paddle = simulation.getPaddle(0);
+        Ball ball = simulation.getBall();
+        BrickField bricks = simulation.getBricks();
+        frame = new FrameSnapshot(session.isOver() ? GamePanel.GameState.GAME_OVER : GamePanel.GameState.PLAYING,
+                paddle.getX(), paddle.getY(), ball.getX(), ball.getY(), paddle.getX(), ball.getX(), ball.getY(),
+                System.nanoTime(), simulation.getScore(), simulation.getElapsedTime(), bricks, bricks.aliveBits(),
+                simulation.getExtraBalls().copyPositions(), stats);
+        secondPaddleX = simulation.getPaddle(1).getX();
+        scores = new int[]{simulation.getScore(0), simulation.getScore(1)};
+        view.repaint();
+    }
+
+    private void printResult() {
+        if (failure != null) {
+            System.out.println("Game aborted: " + failure.getMessage());
+            return;
+        }
+        GameSimulation confirmed = session.getConfirmed();
+        System.out.printf("Game over after %d ticks: %s, player 1 scored %d, player 2 scored %d%n",
+                session.getConfirmedTick(), confirmed.getOutcome(), confirmed.getScore(0), confirmed.getScore(1));
+        System.out.printf("Final checksum %016x, %d rollbacks (%d ticks replayed), %d stalls%n",
+                confirmed.checksum(), session.getRollbacks(), session.getReplayedTicks(), stalls);
+        if (link.getDesyncTick() >= 0) {
+            System.out.println("DESYNC: the games differed at tick " + link.getDesyncTick());
+        }
+    }
+
+    // --- Window ---
+
+    private void showWindow() {
+        GameRenderer renderer = new GameRenderer();
+        int localPlayer = session.getLocalPlayer();
+        JPanel panel = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                FrameSnapshot shown = frame;
+                if (shown == null) {
+                    return;
+                }
+                Graphics2D g2d = (Graphics2D) g;
+                renderer.render(g2d, shown, 1.0);
+                Paddle.draw(g2d, secondPaddleX, shown.paddleY, GamePanel.PADDLE_WIDTH, GamePanel.PADDLE_HEIGHT,
+                        SECOND_PADDLE);
+                int[] points = scores;
+                g2d.setFont(SCORE_FONT);
+                g2d.setColor(Color.CYAN);
+                g2d.drawString((localPlayer == 0 ? "You " : "P1 ") + points[0], 20, getHeight() - 15);
+                g2d.setColor(SECOND_PADDLE);
+                String right = (localPlayer == 1 ? "You " : "P2 ") + points[1];
+                g2d.drawString(right, getWidth() - 20 - g2d.getFontMetrics().stringWidth(right), getHeight() - 15);
+            }
+        };
+        panel.setPreferredSize(new Dimension(GameSimulation.WIDTH, GameSimulation.HEIGHT));
+        panel.setBackground(Color.BLACK);
+        panel.setFocusable(true);
+        panel.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int key = e.getKeyCode();
+                if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+                    keyDirection = -1;
+                } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+                    keyDirection = 1;
+                }
+            }
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                int key = e.getKeyCode();
+                if ((key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) && keyDirection == -1
+                        || (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) && keyDirection == 1) {
+                    keyDirection = 0;
+                }
+            }
+        });
+
+        JFrame window = new JFrame("Breakout - player " + (localPlayer + 1));
+        window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        window.add(panel);
+        window.pack();
+        window.setLocationRelativeTo(null);
+        window.setVisible(true);
+        panel.requestFocusInWindow();
+        view = panel;
+    }
+}
@@ -1,5 +1,4 @@
 import java.awt.*;
-import java.awt.event.KeyEvent;
 import java.awt.geom.Rectangle2D;
 
 public class Paddle {
@@ -17,45 +16,68 @@ public class Paddle {
     }
 
     public void move(int panelWidth) {
+        move(0, panelWidth);
+    }
+
+    // Moves the paddle, keeping it between minX and maxX (its right edge included).
+    public void move(int minX, int maxX) {
         x += dx * speed;
-        if (x <= 0) {
-            x = 0;
+        if (x <= minX) {
+            x = minX;
         }
-        if (x >= panelWidth - width) {
-            x = panelWidth - width;
+        if (x >= maxX - width) {
+            x = maxX - width;
         }
     }
 
     public void draw(Graphics2D g2d) {
-        g2d.setColor(Color.CYAN);
+        draw(g2d, x, y, width, height);
+    }
+
+    // Draws a paddle at the given position, used when rendering from a FrameSnapshot.
+    static void draw(Graphics2D g2d, int x, int y, int width, int height) {
+        draw(g2d, x, y, width, height, Color.CYAN);
+    }
+
+    // Same in another color, to tell the players' paddles apart in a two-player game.
+    static void draw(Graphics2D g2d, int x, int y, int width, int height, Color color) {
+        g2d.setColor(color);
         g2d.fillRoundRect(x, y, width, height, 10, 10);
     }
 
-    public void keyPressed(KeyEvent e) {
-        int key = e.getKeyCode();
-        if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
-            dx = -1;
-        }
-        if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
-            dx = 1;
-        }
+    // -1 = left, 0 = stop, 1 = right.
+    public void setDirection(int direction) {
+        dx = Integer.signum(direction);
     }
 
-    public void keyReleased(KeyEvent e) {
-        int key = e.getKeyCode();
-        if ((key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) && dx == -1) {
-            dx = 0;
-        }
-        if ((key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) && dx == 1) {
-            dx = 0;
-        }
+    public int getDirection() {
+        return dx;
     }
 
+    // Puts the paddle back at x, standing still, for a new game or a restored one.
+    public void reset(int x) {
+        this.x = x;
+        dx = 0;
+    }
+
+    // Allocates; the simulation reads the coordinates below directly.
     public Rectangle2D.Double getBounds() {
         return new Rectangle2D.Double(x, y, width, height);
     }
 
+    public int getX() {
+        return x;
+    }
+
     public int getY() {
         return y;
     }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+import java.util.Random;
+
+// PaddleBots are computer players. Each game needs its own bot, since bots may keep state
+// between ticks; any randomness comes from the seed, so a bot plays a given game the same
+// way every time.
+//
+//   follow   keeps the paddle under the main ball
+//   predict  works out where the most urgent falling ball will land, walls included
+//   human    follows the ball with a reaction delay and a sloppy aim, and now and then
+//            freezes for a moment, like a casual player
+final class PaddleBots {
+
+    static final String[] NAMES = {"follow", "predict", "human"};
+
+    private PaddleBots() {
+    }
+
+    static PaddleController create(String name, long seed) {
+        return create(name, seed, 0);
+    }
+
+    // A bot for player 0 or player 1 of a two-player game.
+    static PaddleController create(String name, long seed, int player) {
+        switch (name) {
+            case "follow":
+                return simulation -> follow(simulation, player);
+            case "predict":
+                return simulation -> predict(simulation, player);
+            case "human":
+                return new Human(seed, player);
+            default:
+                throw new IllegalArgumentException("Unknown bot '" + name + "' (" + String.join(", ", NAMES) + ")");
+        }
+    }
+
+    private static int follow(GameSimulation simulation, int player) {
+        Ball ball = simulation.getBall();
+        return steer(simulation.getPaddle(player), ball.getExactX() + ball.diameter / 2.0, 10);
+    }
+
+    private static int predict(GameSimulation simulation, int player) {
+        Paddle paddle = simulation.getPaddle(player);
+        Ball ball = simulation.getBall();
+        double bestTime = Double.MAX_VALUE;
+        double target = ball.getExactX() + ball.diameter / 2.0; // If nothing is falling, wait under the ball
+        double time = fallTime(paddle, ball.getExactY(), ball.getDy(), ball.diameter);
+        if (time >= 0) {
+            bestTime = time;
+            target = landingCenter(ball.getExactX(), ball.getDx(), time, ball.diameter);
+        }
+        BallSwarm extras = simulation.getExtraBalls();
+        for (int i = 0; i < extras.size(); i++) {
+            time = fallTime(paddle, extras.y[i], extras.dy[i], extras.diameter);
+            if (time >= 0 && time < bestTime) {
+                bestTime = time;
+                target = landingCenter(extras.x[i], extras.dx[i], time, extras.diameter);
+            }
+        }
+        return steer(paddle, target, 5);
+    }
+
+    // Ticks until a ball at y moving by dy reaches the paddle's top, or -1 if it is rising.
+    private static double fallTime(Paddle paddle, double y, double dy, int diameter) {
+        if (dy <= 0) {
+            return -1;
+        }
+        return Math.max(0, (paddle.getY() - diameter - y) / dy);
+    }
+
+    // Where a ball's center will be after the given ticks, folding its path back off the
+    // side walls. Bricks are ignored.
+    private static double landingCenter(double x, double dx, double ticks, int diameter) {
+        double min = 5;
+        double range = GameSimulation.WIDTH - 10 - diameter; // Travel between the walls
+        double period = 2 * range;
+        double p = (x - min + dx * ticks) % period;
+        if (p < 0) {
+            p += period;
+        }
+        if (p > range) {
+            p = period - p;
+        }
+        return min + p + diameter / 2.0;
+    }
+
+    // Moves the paddle's center towards target, stopping within deadZone pixels of it.
+    static int steer(Paddle paddle, double target, double deadZone) {
+        double offset = target - (paddle.getX() + paddle.getWidth() / 2.0);
+        return Math.abs(offset) < deadZone ? 0 : (int) Math.signum(offset);
+    }
+
+    private static final class Human implements PaddleController {
+        private static final int REACTION_TICKS = 6; // 100 ms
+        private static final double FREEZE_CHANCE = 0.002; // Per tick
+        private static final int FREEZE_TICKS = 20;
+
+        private final Random random;
+        private final int player;
+        private final double[] seen = new double[REACTION_TICKS]; // Ball positions, oldest next
+        private int next;
+        private int ticks;
+        private int frozen;
+        private double aimError;
+
+        Human(long seed, int player) {
+            this.random = new Random(seed);
+            this.player = player;
+        }
+
+        @Override
+        public int direction(GameSimulation simulation) {
+            Ball ball = simulation.getBall();
+            double delayed = seen[next];
+            seen[next] = ball.getExactX() + ball.diameter / 2.0;
+            next = (next + 1) % REACTION_TICKS;
+            if (ticks++ < REACTION_TICKS) {
+                return 0; // Still taking it in
+            }
+            if (frozen > 0) {
+                frozen--;
+                return 0;
+            }
+            if (random.nextDouble() < FREEZE_CHANCE) {
+                frozen = FREEZE_TICKS;
+            }
+            if (ticks % REACTION_TICKS == 0) {
+                aimError = random.nextGaussian() * 12;
+            }
+            return steer(simulation.getPaddle(player), delayed + aimError, 20);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+// PaddleController decides which way the paddle moves. It is asked once per tick, just
+// before the tick runs. The keyboard is one controller; PaddleBots has computer players
+// for the game's demo mode, the headless tools and TournamentRunner.
+public interface PaddleController {
+
+    // -1 = left, 0 = stop, 1 = right. Called on the thread running the simulation.
+    int direction(GameSimulation simulation);
+}
@@ -0,0 +1,26 @@
+// RenderMode selects how frames reach the screen. It is chosen once at startup.
+public enum RenderMode {
+
+    // Swing repaint() on the EDT. The original behaviour, kept as the safe fallback.
+    PASSIVE,
+
+    // A Canvas with a page-flipped BufferStrategy, drawn directly by the game loop thread.
+    ACTIVE;
+
+    // Reads "--render=active" / "--render=passive" from the command line,
+    // falling back to the breakout.render system property and then to PASSIVE.
+    public static RenderMode fromArgs(String[] args) {
+        String value = System.getProperty("breakout.render", "passive");
+        for (String arg : args) {
+            if (arg.startsWith("--render=")) {
+                value = arg.substring("--render=".length());
+            }
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown render mode '" + value + "', using passive rendering.");
+            return PASSIVE;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.awt.*;
+
+// RenderQuality trades picture quality for frame time. Antialiased shapes and text are
+// what software rendering pipelines spend most of a frame on, so the cheaper profiles
+// stop drawing them every frame: the ball and paddle become pre-rasterized sprites and
+// the fixed messages cached images, which are only copied (see SpriteCache). Chosen at
+// startup with -Dbreakout.quality and switched in game with F4.
+public enum RenderQuality {
+
+    // Everything antialiased, text included, and drawn as shapes every frame.
+    QUALITY("quality", true, false, RenderingHints.VALUE_RENDER_QUALITY),
+
+    // Looks the same, but the antialiased ball, paddle and messages are drawn once into
+    // sprites and copied after that.
+    BALANCED("balanced", true, true, RenderingHints.VALUE_RENDER_DEFAULT),
+
+    // Sprites as well, and nothing antialiased, so the bricks and the text drawn every
+    // frame (clock, metrics) cost less too. For low-end kiosks without hardware acceleration.
+    PERFORMANCE("performance", false, true, RenderingHints.VALUE_RENDER_SPEED);
+
+    final String label;
+    final String overlayLine; // For the metrics overlay
+    final boolean antialias; // Shapes, bricks and text
+    final boolean sprites; // Ball, paddle and messages copied from cached images
+    private final Object rendering;
+
+    RenderQuality(String label, boolean antialias, boolean sprites, Object rendering) {
+        this.label = label;
+        this.overlayLine = "Render quality: " + label + " (F4)";
+        this.antialias = antialias;
+        this.sprites = sprites;
+        this.rendering = rendering;
+    }
+
+    // Sets this profile's hints on g2d.
+    void apply(Graphics2D g2d) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                antialias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                antialias ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, rendering);
+    }
+
+    RenderQuality next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+
+    // The profile named by -Dbreakout.quality, or QUALITY.
+    static RenderQuality fromProperty() {
+        String value = System.getProperty("breakout.quality", "quality");
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown render quality '" + value + "', using quality.");
+            return QUALITY;
+        }
+    }
+
+    // Picks the Java2D pipeline named by -Dbreakout.pipeline: opengl, xrender (Linux),
+    // d3d (Windows), software, or default to leave it to the JDK. The JDK reads its
+    // sun.java2d flags once, when AWT starts, so this must run before any window or image
+    // is created; flags given explicitly on the command line win.
+    static void selectPipeline() {
+        String pipeline = System.getProperty("breakout.pipeline", "default").trim().toLowerCase();
+        switch (pipeline) {
+            case "default":
+                break;
+            case "opengl":
+                setIfAbsent("sun.java2d.opengl", "true");
+                break;
+            case "xrender":
+                setIfAbsent("sun.java2d.xrender", "true");
+                break;
+            case "d3d":
+                setIfAbsent("sun.java2d.d3d", "true");
+                break;
+            case "software":
+                setIfAbsent("sun.java2d.opengl", "false");
+                setIfAbsent("sun.java2d.xrender", "false");
+                setIfAbsent("sun.java2d.d3d", "false");
+                setIfAbsent("sun.java2d.noddraw", "true");
+                break;
+            default:
+                System.err.println("Unknown rendering pipeline '" + pipeline + "', using the default.");
+        }
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
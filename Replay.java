@@ -0,0 +1,196 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Replay is everything needed to play one game again exactly: the layout seed, the
+// level (if not a random layout), the multi-ball setting, and every paddle direction
+// change stamped with the tick it took effect on. GameSimulation is deterministic given these, so ReplayRunner can check a
+// recorded score or reproduce a physics bug from a file a few hundred bytes long.
+//
+// File layout: int magic "BRKR", byte version, short ticks per second, long seed,
+// int multi-ball count, int level index (-1 for a random layout), int level checksum
+// (version 2 on), int event count, events as (varint tick delta, byte direction),
+// int end tick, int final score, byte outcome, int CRC32 of everything before it.
+public final class Replay {
+
+    static final int MAGIC = 0x42524B52; // "BRKR"
+    static final int VERSION = 2;
+
+    final long seed;
+    final int multiBall;
+    final int level; // Index into the level pack, or -1 for a random layout
+    final int levelChecksum; // Level.checksum() of that level
+
+    // Direction changes in tick order: before tick ticks[i], the paddle direction becomes directions[i].
+    private int[] ticks = new int[64];
+    private byte[] directions = new byte[64];
+    private int eventCount;
+
+    // Filled in by finish(); endTick stays -1 for a game that didn't end.
+    int endTick = -1;
+    int finalScore;
+    GameSimulation.Outcome outcome = GameSimulation.Outcome.RUNNING;
+
+    // A game on a random layout.
+    public Replay(long seed, int multiBall) {
+        this(seed, multiBall, -1, 0);
+    }
+
+    // A game on level number level of the level pack.
+    public Replay(long seed, int multiBall, int level, int levelChecksum) {
+        this.seed = seed;
+        this.multiBall = multiBall;
+        this.level = level;
+        this.levelChecksum = levelChecksum;
+    }
+
+    // Records that the paddle direction changed just before the given tick.
+    public void addInput(int tick, int direction) {
+        if (eventCount == ticks.length) {
+            ticks = Arrays.copyOf(ticks, eventCount * 2);
+            directions = Arrays.copyOf(directions, eventCount * 2);
+        }
+        ticks[eventCount] = tick;
+        directions[eventCount] = (byte) Integer.signum(direction);
+        eventCount++;
+    }
+
+    // Records how the game ended.
+    public void finish(int endTick, int finalScore, GameSimulation.Outcome outcome) {
+        this.endTick = endTick;
+        this.finalScore = finalScore;
+        this.outcome = outcome;
+    }
+
+    // An independent copy, e.g. to save with a game that keeps being recorded into this one.
+    public Replay copy() {
+        Replay copy = new Replay(seed, multiBall, level, levelChecksum);
+        copy.ticks = Arrays.copyOf(ticks, Math.max(eventCount, 1));
+        copy.directions = Arrays.copyOf(directions, Math.max(eventCount, 1));
+        copy.eventCount = eventCount;
+        copy.finish(endTick, finalScore, outcome);
+        return copy;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    public int getEventTick(int i) {
+        return ticks[i];
+    }
+
+    public int getEventDirection(int i) {
+        return directions[i];
+    }
+
+    public void write(Path path) throws IOException {
+        Files.write(path, toBytes());
+    }
+
+    public static Replay read(Path path) throws IOException {
+        return fromBytes(Files.readAllBytes(path), path.toString());
+    }
+
+    // The replay in its file format, e.g. for embedding in a saved game.
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + eventCount * 2);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeShort(GameSimulation.TICKS_PER_SECOND);
+        out.writeLong(seed);
+        out.writeInt(multiBall);
+        out.writeInt(level);
+        out.writeInt(levelChecksum);
+        out.writeInt(eventCount);
+        int previousTick = 0;
+        for (int i = 0; i < eventCount; i++) {
+            writeVarInt(out, ticks[i] - previousTick);
+            out.writeByte(directions[i]);
+            previousTick = ticks[i];
+        }
+        out.writeInt(endTick);
+        out.writeInt(finalScore);
+        out.writeByte(outcome.ordinal());
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    // Reads a replay in its file format; path names the source in error messages.
+    static Replay fromBytes(byte[] data, String path) throws IOException {
+        if (data.length < 4) {
+            throw new IOException(path + " is not a replay");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+            throw new IOException(path + " is damaged (checksum mismatch)");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+        if (in.readInt() != MAGIC) {
+            throw new IOException(path + " is not a replay");
+        }
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException(path + " has unsupported replay version " + version);
+        }
+        int ticksPerSecond = in.readShort();
+        if (ticksPerSecond != GameSimulation.TICKS_PER_SECOND) {
+            throw new IOException(path + " was recorded at " + ticksPerSecond + " ticks per second, this build runs "
+                    + GameSimulation.TICKS_PER_SECOND);
+        }
+
+        long seed = in.readLong();
+        int multiBall = in.readInt();
+        Replay replay = version >= 2
+                ? new Replay(seed, multiBall, in.readInt(), in.readInt())
+                : new Replay(seed, multiBall); // Version 1 only had random layouts
+        int events = in.readInt();
+        int tick = 0;
+        for (int i = 0; i < events; i++) {
+            tick += readVarInt(in);
+            replay.addInput(tick, in.readByte());
+        }
+        int endTick = in.readInt();
+        int finalScore = in.readInt();
+        int outcome = in.readUnsignedByte();
+        if (outcome >= GameSimulation.Outcome.values().length) {
+            throw new IOException(path + " has an unknown game outcome " + outcome);
+        }
+        replay.finish(endTick, finalScore, GameSimulation.Outcome.values()[outcome]);
+        return replay;
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on all but the last byte.
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed replay event");
+    }
+}
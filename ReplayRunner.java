@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// ReplayRunner plays recorded games again with no window and checks that they end the
+// same way: same outcome, same score, on the same tick. By default it runs as fast as the
+// CPU allows; --speed=N paces playback at N times real speed, printing progress, for
+// following a reported bug as it happens. Games played on a level are replayed on the
+// same level pack as the game uses (-Dbreakout.levels).
+//
+// Usage: java ReplayRunner [--speed=N] replay.brk [more.brk ...]
+// Exits with status 1 if any replay doesn't match its recording.
+public class ReplayRunner {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        double speed = 0; // 0 = unlimited
+        boolean allMatch = true;
+        LevelPack levels = null;
+        for (String arg : args) {
+            if (arg.startsWith("--speed=")) {
+                speed = Double.parseDouble(arg.substring("--speed=".length()));
+                continue;
+            }
+            Replay replay = Replay.read(Paths.get(arg));
+            Level level = null;
+            if (replay.level >= 0) {
+                if (levels == null) {
+                    levels = LevelPack.openDefault();
+                }
+                if (levels == null || replay.level >= levels.size()
+                        || (level = levels.get(replay.level)).checksum() != replay.levelChecksum) {
+                    System.out.printf("%s: MISMATCH, recorded on level %d, which isn't in %s or has changed%n",
+                            arg, replay.level + 1, LevelPack.DEFAULT_PATH);
+                    allMatch = false;
+                    continue;
+                }
+            }
+            long start = System.nanoTime();
+            GameSimulation simulation = play(replay, level, speed);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            boolean match = simulation.getOutcome() == replay.outcome
+                    && simulation.getScore() == replay.finalScore
+                    && simulation.getTickCount() == replay.endTick;
+            allMatch &= match;
+            double gameSeconds = simulation.getTickCount() / (double) GameSimulation.TICKS_PER_SECOND;
+            System.out.printf("%s: %s, recorded %s %d at tick %d, replayed %s %d at tick %d (%.0fx real time)%n",
+                    arg, match ? "MATCH" : "MISMATCH",
+                    replay.outcome, replay.finalScore, replay.endTick,
+                    simulation.getOutcome(), simulation.getScore(), simulation.getTickCount(),
+                    gameSeconds / Math.max(seconds, 1e-9));
+        }
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+
+    // Replays the recorded inputs into a fresh simulation until the game ends or reaches
+    // the recorded end tick. level is the replay's level, or null for a random layout.
+    // speed > 0 paces the ticks at that multiple of real time.
+    static GameSimulation play(Replay replay, Level level, double speed) throws InterruptedException {
+        GameClock.Manual clock = new GameClock.Manual();
+        GameSimulation simulation = new GameSimulation(replay.seed, clock);
+        if (level != null) {
+            simulation.reset(replay.seed, level);
+        }
+        simulation.setMultiBall(replay.multiBall);
+        simulation.resume();
+
+        int lastTick = replay.endTick >= 0 ? replay.endTick : Integer.MAX_VALUE;
+        long nanosPerTick = speed > 0 ? (long) (1e9 / GameSimulation.TICKS_PER_SECOND / speed) : 0;
+        long next = System.nanoTime();
+        int event = 0;
+        while (simulation.getOutcome() == GameSimulation.Outcome.RUNNING && simulation.getTickCount() < lastTick) {
+            int tick = simulation.getTickCount();
+            while (event < replay.getEventCount() && replay.getEventTick(event) == tick) {
+                simulation.setPaddleDirection(replay.getEventDirection(event++));
+            }
+            if (event == replay.getEventCount() && replay.endTick < 0) {
+                break; // An unfinished recording: stop where the input stops
+            }
+            clock.set((tick + 1) * 1000L / GameSimulation.TICKS_PER_SECOND);
+            simulation.tick();
+
+            if (nanosPerTick > 0) {
+                next += nanosPerTick;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+                if (tick % GameSimulation.TICKS_PER_SECOND == 0) {
+                    System.out.printf("  tick %d, score %d%n", tick, simulation.getScore());
+                }
+            }
+        }
+        return simulation;
+    }
+}
@@ -0,0 +1,111 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// SchemaMigrations brings the highscores schema up to date. Each step runs once: the
+// versions applied so far are kept in the schema_version table, and only newer steps
+// run. Steps are never edited once released; a change to the schema is a new step.
+// A MySQL named lock keeps two cabinets starting at the same time from racing.
+final class SchemaMigrations {
+
+    static final String LOCK_NAME = "breakout_schema";
+    static final int LOCK_TIMEOUT_SECONDS = 30;
+    private static final int ER_DUP_FIELDNAME = 1060; // MySQL: column already exists
+    private static final int ER_DUP_KEYNAME = 1061; // MySQL: index already exists
+
+    // Step n (1-based) brings the schema to version n.
+    private static final String[][] STEPS = {
+            // 1: the original table
+            {"CREATE TABLE IF NOT EXISTS highscores (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY," +
+                    "name VARCHAR(255) NOT NULL," +
+                    "score INT NOT NULL," +
+                    "timestamp DATETIME DEFAULT CURRENT_TIMESTAMP" +
+                    ")"},
+            // 2: indexes for the leaderboard (best first, ties by age), for per-player
+            // lookups, and for date-bounded leaderboards. Only the per-player one covers
+            // its query (MAX(score) by name); the leaderboard reads its page of rows in
+            // index order and fetches the remaining columns by primary key, which with a
+            // LIMIT is a page's worth of lookups. DESC keys need MySQL 8; 5.7 parses and
+            // ignores DESC and scans the ascending index backwards instead.
+            {"CREATE INDEX idx_highscores_score ON highscores (score DESC, id, name)",
+                    "CREATE INDEX idx_highscores_name ON highscores (name, score)",
+                    "CREATE INDEX idx_highscores_timestamp ON highscores (timestamp, score)"},
+            // 3: daily and rolling seven-day leaderboards
+            {"CREATE OR REPLACE VIEW highscores_daily AS " +
+                    "SELECT id, name, score, timestamp FROM highscores WHERE timestamp >= CURRENT_DATE",
+                    "CREATE OR REPLACE VIEW highscores_weekly AS " +
+                            "SELECT id, name, score, timestamp FROM highscores " +
+                            "WHERE timestamp >= CURRENT_DATE - INTERVAL 6 DAY"},
+            // 4: play time of each game; NULL for scores saved before it was recorded
+            {"ALTER TABLE highscores ADD COLUMN elapsed_ms BIGINT NULL",
+                    "CREATE OR REPLACE VIEW highscores_daily AS " +
+                            "SELECT id, name, score, elapsed_ms, timestamp FROM highscores WHERE timestamp >= CURRENT_DATE",
+                    "CREATE OR REPLACE VIEW highscores_weekly AS " +
+                            "SELECT id, name, score, elapsed_ms, timestamp FROM highscores " +
+                            "WHERE timestamp >= CURRENT_DATE - INTERVAL 6 DAY"},
+    };
+
+    static final int LATEST_VERSION = STEPS.length;
+
+    private SchemaMigrations() {
+    }
+
+    // Applies any steps the database hasn't had yet.
+    static void migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY," +
+                    "applied_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+            if (currentVersion(stmt) >= LATEST_VERSION) {
+                return; // The usual case: nothing to do, no need to lock
+            }
+
+            lock(conn);
+            try {
+                for (int version = currentVersion(stmt) + 1; version <= LATEST_VERSION; version++) {
+                    for (String sql : STEPS[version - 1]) {
+                        executeStep(stmt, sql);
+                    }
+                    stmt.executeUpdate("INSERT INTO schema_version (version) VALUES (" + version + ")");
+                }
+            } finally {
+                stmt.execute("DO RELEASE_LOCK('" + LOCK_NAME + "')");
+            }
+        }
+    }
+
+    private static int currentVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void lock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another client to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    // DDL commits implicitly in MySQL, so a crash can leave a step half done. Columns and
+    // indexes that already exist are skipped, which makes every step safe to run again.
+    private static void executeStep(Statement stmt, String sql) throws SQLException {
+        try {
+            stmt.execute(sql);
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_DUP_FIELDNAME && e.getErrorCode() != ER_DUP_KEYNAME) {
+                throw e;
+            }
+        }
+    }
+}
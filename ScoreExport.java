@@ -0,0 +1,52 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Instant;
+
+// ScoreExport writes the whole highscores table as CSV (name, score, elapsed_ms, timestamp)
+// for analysis elsewhere. Rows are streamed from the database straight to the output, so
+// memory use stays flat however large the table is.
+//
+// Usage: java ScoreExport [output.csv]   (stdout if no file is given)
+public class ScoreExport {
+
+    public static void main(String[] args) throws IOException, SQLException {
+        ConnectionPool pool = DatabaseManager.createPool();
+        try (Writer out = args.length > 0
+                ? Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            DatabaseManager db = new DatabaseManager(pool);
+            out.write("name,score,elapsed_ms,timestamp\n");
+            long count = db.exportScores(record -> writeRow(out, record));
+            out.flush();
+            System.err.println("Exported " + count + " scores");
+        } finally {
+            pool.close();
+        }
+    }
+
+    private static void writeRow(Writer out, ScoreRecord record) throws IOException {
+        out.write(quote(record.getName()));
+        out.write(',');
+        out.write(Integer.toString(record.getScore()));
+        out.write(',');
+        if (record.getElapsedMillis() > 0) {
+            out.write(Long.toString(record.getElapsedMillis()));
+        }
+        out.write(',');
+        if (record.getTimestamp() != 0) {
+            out.write(Instant.ofEpochMilli(record.getTimestamp()).toString());
+        }
+        out.write('\n');
+    }
+
+    // Quotes a CSV field, doubling any quotes inside it.
+    private static String quote(String field) {
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,44 @@
+// ScoreRecord is one high score: who, how many points, how long the game took and when
+// it was played. It is the single score type shared by the local score log, the database
+// queries and the leaderboard, so callers can sort, filter and cache scores as data and
+// only format them for display.
+public final class ScoreRecord {
+
+    final String name;
+    final int score;
+    final long elapsedMillis; // Play time of the game; 0 if unknown (scores saved before it was recorded)
+    final long timestamp; // Epoch millis when the score was recorded; 0 if unknown
+
+    public ScoreRecord(String name, int score, long elapsedMillis, long timestamp) {
+        this.name = name;
+        this.score = score;
+        this.elapsedMillis = elapsedMillis;
+        this.timestamp = timestamp;
+    }
+
+    // Receives records one at a time, e.g. from a streaming export.
+    public interface Sink {
+        void accept(ScoreRecord record) throws Exception;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return name + " - " + score;
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// ScoreWriter uploads the LocalScoreLog to MySQL in the background. It inserts unsynced
+// scores in JDBC batches, one transaction per batch, and only then moves the log's synced
+// mark past them. While the database is unreachable it keeps retrying with backoff, so
+// scores recorded offline reach the highscores table once the network is back. A crash
+// between a commit and the mark can upload a batch twice, never lose it. A record the
+// database refuses for good (bad data, a constraint) is set aside with LocalScoreLog.reject()
+// instead, so it can't hold up every score behind it.
+public class ScoreWriter implements AutoCloseable {
+
+    static final int MAX_BATCH_SIZE = 64;
+    static final long FIRST_RETRY_DELAY_MS = 500; // Doubles after every failed attempt
+    static final long MAX_RETRY_DELAY_MS = 60_000;
+    static final long IDLE_CHECK_MS = 30_000; // Upper bound on how long a new record waits to be noticed
+    static final long BORROW_TIMEOUT_MS = 5_000;
+
+    private static final String INSERT_SQL = "INSERT INTO highscores (name, score, elapsed_ms, timestamp) VALUES (?, ?, ?, ?)";
+
+    private final LocalScoreLog log;
+    private final ConnectionPool pool;
+    private final Thread uploader;
+    private volatile boolean closing;
+    private boolean schemaChecked; // Only touched by the uploader thread
+
+    public ScoreWriter(LocalScoreLog log, ConnectionPool pool) {
+        this.log = log;
+        this.pool = pool;
+        // Never interrupted: the log's FileChannel would be closed by an interrupt during a read
+        this.uploader = new Thread(this::uploadLoop, "score-writer");
+        this.uploader.setDaemon(true);
+        this.uploader.start();
+    }
+
+    // Stops uploading, waiting up to timeoutMillis for a batch in progress. Anything not
+    // uploaded yet stays in the log for the next run.
+    public void close(long timeoutMillis) {
+        closing = true;
+        log.wakeWaiters();
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            uploader.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        close(BORROW_TIMEOUT_MS);
+    }
+
+    private void uploadLoop() {
+        List<ScoreRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        long delay = FIRST_RETRY_DELAY_MS;
+        while (!closing) {
+            try {
+                long from = log.getSyncedOffset();
+                if (!log.awaitRecordsAfter(from, IDLE_CHECK_MS)) {
+                    continue;
+                }
+                batch.clear();
+                long to = log.read(from, MAX_BATCH_SIZE, batch);
+                try {
+                    writeBatch(batch);
+                    log.markSynced(to);
+                } catch (SQLException e) {
+                    if (!isRejected(e)) {
+                        throw e;
+                    }
+                    writeOneByOne(from, to); // Find the record the database refuses
+                }
+                delay = FIRST_RETRY_DELAY_MS;
+            } catch (SQLException | IOException e) {
+                if (delay == FIRST_RETRY_DELAY_MS) {
+                    System.err.println("Could not upload high scores, will keep retrying: " + e.getMessage());
+                }
+                pause(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Uploads the records between the two log offsets one transaction each, marking each
+    // synced as it goes, and sets aside those the database refuses.
+    private void writeOneByOne(long from, long to) throws SQLException, IOException {
+        List<ScoreRecord> single = new ArrayList<>(1);
+        while (from < to) {
+            single.clear();
+            long next = log.read(from, 1, single);
+            try {
+                writeBatch(single);
+            } catch (SQLException e) {
+                if (!isRejected(e)) {
+                    throw e;
+                }
+                System.err.println("The database refused the score " + single.get(0) + ", setting it aside: "
+                        + e.getMessage());
+                log.reject(single.get(0), e.getMessage());
+            }
+            log.markSynced(next);
+            from = next;
+        }
+    }
+
+    // True if the database refused the data itself (SQLState class 22 or 23), which no
+    // retry will change. Anything else (a lost connection, a timeout, the server down)
+    // may pass and is retried.
+    static boolean isRejected(SQLException e) {
+        if (e instanceof SQLDataException || e instanceof SQLIntegrityConstraintViolationException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Inserts the batch in one transaction, so a failed attempt leaves nothing behind to
+    // be duplicated by the retry.
+    private void writeBatch(List<ScoreRecord> batch) throws SQLException {
+        Connection conn = pool.borrow(BORROW_TIMEOUT_MS);
+        boolean healthy = false;
+        try {
+            if (!schemaChecked) {
+                // The game may have started while the database was down
+                SchemaMigrations.migrate(conn);
+                schemaChecked = true;
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+                for (ScoreRecord record : batch) {
+                    pstmt.setString(1, record.getName());
+                    pstmt.setInt(2, record.getScore());
+                    pstmt.setLong(3, record.getElapsedMillis());
+                    pstmt.setTimestamp(4, new Timestamp(record.getTimestamp()));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            healthy = true;
+        } catch (SQLException e) {
+            if (isRejected(e)) {
+                // The connection is fine; only the data was refused
+                try {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                    healthy = true;
+                } catch (SQLException rollbackFailed) {
+                    e.addSuppressed(rollbackFailed);
+                }
+            }
+            throw e;
+        } finally {
+            if (healthy) {
+                pool.release(conn);
+            } else {
+                pool.discard(conn); // Most likely a dropped connection; don't hand it out again
+            }
+        }
+    }
+
+    private synchronized void pause(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        long remaining = millis;
+        while (!closing && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                return;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// SpectatorClient watches a game streamed by SpectatorServer, drawn with the game's own
+// renderer, for leaderboard screens next to the kiosks. Ticks arrive in batches; they are
+// played back one per tick from a short buffer, so the ball moves as smoothly as in the
+// game itself, a batch behind it. Reconnects by itself if the game goes away.
+//
+// With --viewers=N it opens N connections without a window instead, and prints their
+// combined traffic once a second, for load testing a server.
+//
+// Usage: java SpectatorClient [host:port] [--viewers=N] [--seconds=N]
+public class SpectatorClient {
+
+    static final String DEFAULT_ADDRESS = "localhost:7777";
+    static final long RECONNECT_MILLIS = 2_000;
+    static final int MAX_BUFFERED_FRAMES = 12; // Beyond this, playback skips ahead to stay live
+    static final int MAX_MESSAGE_BYTES = 64 << 20;
+
+    public static void main(String[] args) throws InterruptedException {
+        String address = DEFAULT_ADDRESS;
+        int viewers = 0;
+        int seconds = 0; // 0 = until stopped
+        for (String arg : args) {
+            if (arg.startsWith("--viewers=")) {
+                viewers = Integer.parseInt(arg.substring("--viewers=".length()));
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+            } else if (arg.startsWith("--")) {
+                System.err.println("Unknown option " + arg);
+                System.exit(2);
+            } else {
+                address = arg;
+            }
+        }
+        int colon = address.lastIndexOf(':');
+        InetSocketAddress server = new InetSocketAddress(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1)));
+        if (viewers > 0) {
+            loadTest(server, viewers, seconds);
+        } else {
+            watch(server);
+        }
+    }
+
+    // --- Window ---
+
+    private static void watch(InetSocketAddress server) {
+        Queue<FrameSnapshot> frames = new ConcurrentLinkedQueue<>();
+        GameRenderer renderer = new GameRenderer();
+        FrameSnapshot[] shown = new FrameSnapshot[1]; // EDT only
+        JPanel view = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (shown[0] != null) {
+                    renderer.render((Graphics2D) g, shown[0], 1.0);
+                } else {
+                    g.setColor(Color.WHITE);
+                    g.drawString("Waiting for " + server.getHostString() + ":" + server.getPort() + "...", 20, 30);
+                }
+            }
+        };
+        view.setPreferredSize(new Dimension(GameSimulation.WIDTH, GameSimulation.HEIGHT));
+        view.setBackground(Color.BLACK);
+
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Breakout - watching " + server.getHostString());
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(view);
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+
+            // Plays one tick per tick, skipping ahead if the buffer gets long
+            new Timer(1000 / GameSimulation.TICKS_PER_SECOND, e -> {
+                FrameSnapshot next = frames.poll();
+                while (next != null && frames.size() > MAX_BUFFERED_FRAMES) {
+                    next = frames.poll();
+                }
+                if (next != null) {
+                    shown[0] = next;
+                    view.repaint();
+                }
+            }).start();
+        });
+
+        Stream stream = new Stream(true);
+        Thread reader = new Thread(() -> {
+            while (true) {
+                try (SocketChannel channel = SocketChannel.open(server)) {
+                    stream.read(channel, (frame, keyframe) -> {
+                        if (keyframe) {
+                            frames.clear(); // Whatever was buffered is out of date
+                        }
+                        frames.add(frame);
+                    });
+                } catch (IOException e) {
+                    System.err.println("Lost " + server + " (" + e.getMessage() + "), retrying");
+                }
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "spectator-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    // --- Load test ---
+
+    private static void loadTest(InetSocketAddress server, int viewers, int seconds) throws InterruptedException {
+        LongAdder bytes = new LongAdder();
+        LongAdder ticks = new LongAdder();
+        AtomicInteger connected = new AtomicInteger();
+        Stream[] streams = new Stream[viewers];
+        for (int i = 0; i < viewers; i++) {
+            Stream stream = new Stream(false);
+            streams[i] = stream;
+            Thread thread = new Thread(() -> {
+                try (SocketChannel channel = SocketChannel.open(server)) {
+                    connected.incrementAndGet();
+                    stream.bytes = bytes;
+                    stream.read(channel, (frame, keyframe) -> ticks.increment());
+                } catch (IOException e) {
+                    System.err.println("Viewer disconnected: " + e.getMessage());
+                } finally {
+                    connected.decrementAndGet();
+                }
+            }, "spectator-viewer-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long totalBytes = 0;
+        for (int second = 1; seconds == 0 || second <= seconds; second++) {
+            Thread.sleep(1000);
+            long secondBytes = bytes.sumThenReset();
+            long secondTicks = ticks.sumThenReset();
+            totalBytes += secondBytes;
+            Stream first = streams[0];
+            System.out.printf("%3d s: %d viewers, %.1f KB/s (%.0f B/s each), %.0f ticks/s each, tick %d, score %d, keyframes %d%n",
+                    second, connected.get(), secondBytes / 1024.0, secondBytes / (double) Math.max(1, viewers),
+                    secondTicks / (double) Math.max(1, viewers), first.tick, first.score, first.keyframes);
+        }
+        System.out.printf("Received %d bytes in total%n", totalBytes);
+    }
+
+    // --- Decoding ---
+
+    interface FrameSink {
+        void frame(FrameSnapshot frame, boolean keyframe);
+    }
+
+    // The receiving end of one connection: keeps the mirrored game state and turns each
+    // keyframe and each tick of a delta into a FrameSnapshot. One thread only.
+    static final class Stream {
+        private final boolean keepFrames; // false: decode only, for load tests
+        LongAdder bytes; // Counts bytes received, if set
+
+        volatile int tick;
+        volatile int score;
+        volatile int keyframes;
+        private GamePanel.GameState state;
+        private long elapsedTime;
+        private int paddleX, paddleY, ballX, ballY;
+        private int[] extraBalls = new int[0];
+        private BrickField bricks; // null until the first keyframe
+        private long[] brickAlive; // Replaced, never modified, as the renderer expects
+
+        Stream(boolean keepFrames) {
+            this.keepFrames = keepFrames;
+        }
+
+        // Reads messages until the connection closes, passing on a frame for each tick.
+        void read(SocketChannel channel, FrameSink sink) throws IOException {
+            bricks = null; // A new connection starts with a keyframe
+            ByteBuffer in = ByteBuffer.allocate(64 << 10);
+            while (true) {
+                int read = channel.read(in);
+                if (read < 0) {
+                    throw new EOFException("closed by the server");
+                }
+                if (bytes != null) {
+                    bytes.add(read);
+                }
+                in.flip();
+                while (in.remaining() >= 4) {
+                    int length = in.getInt(in.position());
+                    if (length <= 0 || length > MAX_MESSAGE_BYTES) {
+                        throw new IOException("Bad message length " + length);
+                    }
+                    if (in.remaining() < 4 + length) {
+                        break;
+                    }
+                    ByteBuffer message = in.slice();
+                    message.position(4).limit(4 + length);
+                    in.position(in.position() + 4 + length);
+                    try {
+                        decode(message, sink);
+                    } catch (RuntimeException e) { // Buffer underflow, bad enum value, ...
+                        throw new IOException("Malformed message: " + e, e);
+                    }
+                }
+                in.compact();
+                if (!in.hasRemaining()) { // A message larger than the buffer, e.g. a huge level's keyframe
+                    ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                    in.flip();
+                    larger.put(in);
+                    in = larger;
+                }
+            }
+        }
+
+        private void decode(ByteBuffer message, FrameSink sink) throws IOException {
+            byte kind = message.get();
+            if (kind == SpectatorServer.KEYFRAME) {
+                decodeKeyframe(message);
+                keyframes++;
+                sink.frame(toFrame(), true);
+            } else if (kind == SpectatorServer.DELTA) {
+                if (bricks == null) {
+                    return; // Not in sync yet; the keyframe is on its way
+                }
+                while (message.hasRemaining()) {
+                    decodeTick(message);
+                    sink.frame(toFrame(), false);
+                }
+            } else {
+                throw new IOException("Unknown message kind " + kind);
+            }
+        }
+
+        private void decodeKeyframe(ByteBuffer in) {
+            tick = in.getInt();
+            state = GamePanel.GameState.values()[in.get()];
+            score = in.getInt();
+            elapsedTime = in.getLong();
+            paddleX = in.getShort();
+            paddleY = in.getShort();
+            ballX = in.getShort();
+            ballY = in.getShort();
+            extraBalls = new int[in.getShort() * 2];
+            for (int i = 0; i < extraBalls.length; i++) {
+                extraBalls[i] = in.getShort();
+            }
+            int count = in.getInt();
+            BrickField field = new BrickField(count);
+            for (int i = 0; i < count; i++) {
+                int x = in.getShort(), y = in.getShort(), width = in.getShort(), height = in.getShort();
+                int argb = in.getInt();
+                int type = in.get();
+                field.add(x, y, width, height, argb, type, type == BrickField.TOUGH ? 2 : 1);
+            }
+            long[] alive = new long[(count + 63) >>> 6];
+            for (int w = 0; w < alive.length; w++) {
+                alive[w] = in.getLong();
+            }
+            bricks = field;
+            brickAlive = alive;
+        }
+
+        private void decodeTick(ByteBuffer in) throws IOException {
+            tick += SpectatorServer.unzigzag(SpectatorServer.getVarInt(in));
+            int flags = in.get();
+            if ((flags & SpectatorServer.PADDLE) != 0) {
+                paddleX += SpectatorServer.unzigzag(SpectatorServer.getVarInt(in));
+            }
+            if ((flags & SpectatorServer.BALL) != 0) {
+                ballX += SpectatorServer.unzigzag(SpectatorServer.getVarInt(in));
+                ballY += SpectatorServer.unzigzag(SpectatorServer.getVarInt(in));
+            }
+            if ((flags & SpectatorServer.SCORE) != 0) {
+                score = SpectatorServer.getVarInt(in);
+            }
+            if ((flags & SpectatorServer.STATE) != 0) {
+                state = GamePanel.GameState.values()[in.get()];
+            }
+            if ((flags & SpectatorServer.BRICKS) != 0) {
+                long[] alive = brickAlive.clone();
+                int index = 0;
+                for (int n = SpectatorServer.getVarInt(in); n > 0; n--) {
+                    index += SpectatorServer.getVarInt(in);
+                    if (index >= bricks.size()) {
+                        throw new IOException("Brick " + index + " out of range");
+                    }
+                    alive[index >>> 6] &= ~(1L << index);
+                }
+                brickAlive = alive;
+            }
+            if ((flags & SpectatorServer.EXTRA_BALLS) != 0) {
+                int[] previous = extraBalls;
+                int[] balls = new int[SpectatorServer.getVarInt(in) * 2];
+                for (int i = 0; i < balls.length; i++) {
+                    balls[i] = (i < previous.length ? previous[i] : 0) + SpectatorServer.unzigzag(SpectatorServer.getVarInt(in));
+                }
+                extraBalls = balls;
+            }
+            if ((flags & SpectatorServer.CLOCK) != 0) {
+                elapsedTime += SpectatorServer.unzigzag(SpectatorServer.getVarInt(in));
+            }
+        }
+
+        private FrameSnapshot toFrame() {
+            if (!keepFrames) {
+                return null;
+            }
+            return new FrameSnapshot(state, paddleX, paddleY, ballX, ballY, paddleX, ballX, ballY, System.nanoTime(),
+                    score, elapsedTime, bricks, brickAlive, extraBalls, null);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// SpectatorServer streams a live game to any number of viewers (see SpectatorClient) over
+// TCP, for screens that mirror games in progress. Viewers get one keyframe with the whole
+// state when they join, then only what changed, tick by tick: how far the ball and paddle
+// moved, which bricks broke, the new score. Ticks are batched into one message every
+// BATCH_MILLIS, encoded once and shared by every viewer, so a game costs well under
+// 1 KB/s per viewer. One selector thread serves all viewers; a viewer that can't keep up
+// has its backlog dropped and is sent a fresh keyframe instead of slowing anyone down.
+//
+// Every message is an int length followed by that many bytes: a kind byte, then
+//   KEYFRAME: int tick, byte state, int score, long elapsed millis, short paddle x and y,
+//     short ball x and y, short extra ball count, (short x, short y) per extra ball,
+//     int brick count, (short x, y, width, height, int argb, byte type) per brick,
+//     the alive bits as longs, 64 bricks each
+//   DELTA: one record per tick that changed anything, each a zigzag varint tick delta,
+//     a flags byte, then for each flag set, in flag order: paddle x delta, ball x and y
+//     deltas, score, state byte, destroyed bricks (count, then ascending index gaps),
+//     extra balls (count, then x and y deltas against the same slot last tick), clock delta.
+// Varints are unsigned LEB128 (as in Replay); deltas are zigzag-encoded.
+public final class SpectatorServer implements Runnable {
+
+    static final int PORT = Integer.getInteger("breakout.spectatorPort", 0); // 0 = no server
+    static final long BATCH_MILLIS = 50;
+    static final int MAX_BACKLOG_MESSAGES = 40; // 2 s of batches queued for a viewer, then it is resynchronized
+    static final int SEND_BUFFER_BYTES = 32 << 10; // Small, so a slow viewer's lag shows up in its backlog
+
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+
+    static final int PADDLE = 1;
+    static final int BALL = 2;
+    static final int SCORE = 4;
+    static final int STATE = 8;
+    static final int BRICKS = 16;
+    static final int EXTRA_BALLS = 32;
+    static final int CLOCK = 64;
+
+    // Who a message is for: delta messages only make sense to viewers in sync with the
+    // stream, keyframes sent to resynchronize viewers only to those that aren't.
+    private static final int IN_SYNC = 0;
+    private static final int OUT_OF_SYNC = 1;
+    private static final int EVERYONE = 2;
+
+    private static final class Message {
+        final ByteBuffer data; // Read-only; each viewer writes from its own duplicate
+        final int audience;
+
+        Message(ByteBuffer data, int audience) {
+            this.data = data;
+            this.audience = audience;
+        }
+    }
+
+    private static final class Viewer {
+        final SocketChannel channel;
+        final Queue<ByteBuffer> backlog = new ArrayDeque<>();
+        boolean inSync;
+
+        Viewer(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Queue<Message> outgoing = new ConcurrentLinkedQueue<>();
+    private final List<Viewer> viewers = new ArrayList<>(); // Selector thread only
+    private volatile int viewerCount;
+    private volatile long bytesSent;
+
+    // --- Encoder state --- Guarded by this: written by publish(), read for keyframes.
+    private FrameSnapshot last; // null until the first frame
+    private int lastTick;
+    private int[] lastExtraBalls = new int[0];
+    private ByteBuffer batch = ByteBuffer.allocate(4096);
+    private int batchedTicks;
+    private long batchStart;
+
+    private SpectatorServer(ServerSocketChannel server, Selector selector) {
+        this.server = server;
+        this.selector = selector;
+    }
+
+    // Listens on port (0 picks a free one) and starts the selector thread.
+    public static SpectatorServer start(int port) throws IOException {
+        Selector selector = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        SpectatorServer spectators = new SpectatorServer(server, selector);
+        Thread thread = new Thread(spectators, "spectator-server");
+        thread.setDaemon(true);
+        thread.start();
+        return spectators;
+    }
+
+    // Starts a server on -Dbreakout.spectatorPort. Returns null if none is configured or
+    // it can't listen, in which case the game just isn't streamed.
+    public static SpectatorServer startDefault() {
+        if (PORT <= 0) {
+            return null;
+        }
+        try {
+            SpectatorServer spectators = start(PORT);
+            System.out.println("Streaming games to spectators on port " + spectators.getPort());
+            return spectators;
+        } catch (IOException e) {
+            System.err.println("Failed to start the spectator server on port " + PORT + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public void close() throws IOException {
+        selector.close();
+        server.close();
+    }
+
+    // --- Encoding ---
+
+    // Adds a published frame to the stream. tick is the simulation's tick count for it.
+    // Called by whichever thread publishes frames, once per frame; frames that show nothing
+    // new cost nothing.
+    public synchronized void publish(FrameSnapshot frame, int tick) {
+        if (last == null || frame.bricks != last.bricks || tick < lastTick || anyRestored(frame)) {
+            // A new game, or bricks came back: changes that only a keyframe describes
+            flush();
+            remember(frame, tick);
+            queueKeyframe(EVERYONE);
+            return;
+        }
+        int flags = 0;
+        if (frame.paddleX != last.paddleX) {
+            flags |= PADDLE;
+        }
+        if (frame.ballX != last.ballX || frame.ballY != last.ballY) {
+            flags |= BALL;
+        }
+        if (frame.score != last.score) {
+            flags |= SCORE;
+        }
+        if (frame.state != last.state) {
+            flags |= STATE;
+        }
+        if (frame.brickAlive != last.brickAlive) {
+            flags |= BRICKS;
+        }
+        if (frame.extraBalls.length > 0 || lastExtraBalls.length > 0) {
+            flags |= EXTRA_BALLS;
+        }
+        if (frame.elapsedTime != last.elapsedTime) {
+            flags |= CLOCK;
+        }
+        if (flags != 0) { // Ticks that change nothing visible are left out; the next tick delta spans them
+            if (batchedTicks == 0) {
+                batchStart = System.nanoTime();
+            }
+            writeRecord(frame, tick, flags);
+            batchedTicks++;
+            remember(frame, tick);
+        }
+        if (batchedTicks > 0 && ((flags & STATE) != 0 || System.nanoTime() - batchStart >= BATCH_MILLIS * 1_000_000)) {
+            flush(); // A pause or game over goes out at once: no more frames may follow for a while
+        }
+    }
+
+    private void writeRecord(FrameSnapshot frame, int tick, int flags) {
+        int destroyed = (flags & BRICKS) != 0 ? countDestroyed(frame) : 0;
+        ensureCapacity(40 + destroyed * 5 + frame.extraBalls.length * 5); // Varints take up to 5 bytes
+        if (batchedTicks == 0) {
+            batch.putInt(0); // Length, filled in by flush()
+            batch.put(DELTA);
+        }
+        putVarInt(batch, zigzag(tick - lastTick));
+        batch.put((byte) flags);
+        if ((flags & PADDLE) != 0) {
+            putVarInt(batch, zigzag(frame.paddleX - last.paddleX));
+        }
+        if ((flags & BALL) != 0) {
+            putVarInt(batch, zigzag(frame.ballX - last.ballX));
+            putVarInt(batch, zigzag(frame.ballY - last.ballY));
+        }
+        if ((flags & SCORE) != 0) {
+            putVarInt(batch, frame.score);
+        }
+        if ((flags & STATE) != 0) {
+            batch.put((byte) frame.state.ordinal());
+        }
+        if ((flags & BRICKS) != 0) {
+            writeDestroyedBricks(frame, destroyed);
+        }
+        if ((flags & EXTRA_BALLS) != 0) {
+            int[] balls = frame.extraBalls;
+            putVarInt(batch, balls.length / 2);
+            for (int i = 0; i < balls.length; i++) {
+                putVarInt(batch, zigzag(balls[i] - (i < lastExtraBalls.length ? lastExtraBalls[i] : 0)));
+            }
+        }
+        if ((flags & CLOCK) != 0) {
+            putVarInt(batch, zigzag((int) (frame.elapsedTime - last.elapsedTime)));
+        }
+    }
+
+    private int countDestroyed(FrameSnapshot frame) {
+        int count = 0;
+        for (int w = 0; w < frame.brickAlive.length; w++) {
+            count += Long.bitCount(last.brickAlive[w] & ~frame.brickAlive[w]);
+        }
+        return count;
+    }
+
+    private void writeDestroyedBricks(FrameSnapshot frame, int count) {
+        long[] before = last.brickAlive;
+        long[] after = frame.brickAlive;
+        putVarInt(batch, count);
+        int previous = 0;
+        for (int w = 0; w < after.length; w++) {
+            long destroyed = before[w] & ~after[w];
+            while (destroyed != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(destroyed);
+                destroyed &= destroyed - 1;
+                putVarInt(batch, i - previous);
+                previous = i;
+            }
+        }
+    }
+
+    private boolean anyRestored(FrameSnapshot frame) {
+        if (frame.brickAlive == last.brickAlive) {
+            return false;
+        }
+        for (int w = 0; w < frame.brickAlive.length; w++) {
+            if ((frame.brickAlive[w] & ~last.brickAlive[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remember(FrameSnapshot frame, int tick) {
+        last = frame;
+        lastTick = tick;
+        lastExtraBalls = frame.extraBalls;
+    }
+
+    // Sends the ticks batched so far to the viewers in sync with the stream.
+    private void flush() {
+        if (batchedTicks == 0) {
+            return;
+        }
+        batch.putInt(0, batch.position() - 4);
+        batch.flip();
+        ByteBuffer message = ByteBuffer.allocate(batch.remaining());
+        message.put(batch).flip();
+        batch.clear();
+        batchedTicks = 0;
+        send(message, IN_SYNC);
+    }
+
+    // Encodes the last published frame as a keyframe for the given viewers.
+    private void queueKeyframe(int audience) {
+        FrameSnapshot frame = last;
+        BrickField bricks = frame.bricks;
+        int[] balls = frame.extraBalls;
+        ByteBuffer message = ByteBuffer.allocate(48 + balls.length * 2 + bricks.size() * 13
+                + frame.brickAlive.length * 8);
+        message.putInt(0);
+        message.put(KEYFRAME);
+        message.putInt(lastTick);
+        message.put((byte) frame.state.ordinal());
+        message.putInt(frame.score);
+        message.putLong(frame.elapsedTime);
+        message.putShort((short) frame.paddleX).putShort((short) frame.paddleY);
+        message.putShort((short) frame.ballX).putShort((short) frame.ballY);
+        message.putShort((short) (balls.length / 2));
+        for (int coordinate : balls) {
+            message.putShort((short) coordinate);
+        }
+        message.putInt(bricks.size());
+        for (int i = 0; i < bricks.size(); i++) {
+            message.putShort((short) bricks.getX(i)).putShort((short) bricks.getY(i));
+            message.putShort((short) bricks.getWidth(i)).putShort((short) bricks.getHeight(i));
+            message.putInt(bricks.getColor(i));
+            message.put((byte) bricks.getType(i));
+        }
+        for (int w = 0; w < (bricks.size() + 63) >>> 6; w++) {
+            message.putLong(frame.brickAlive[w]);
+        }
+        message.putInt(0, message.position() - 4);
+        message.flip();
+        send(message, audience);
+    }
+
+    // Called on the selector thread when viewers need a keyframe to join the stream.
+    private synchronized void resynchronize() {
+        if (last != null) {
+            flush(); // Everything before the keyframe goes to the viewers already in sync
+            queueKeyframe(OUT_OF_SYNC);
+        }
+    }
+
+    private void send(ByteBuffer message, int audience) {
+        outgoing.add(new Message(message.asReadOnlyBuffer(), audience));
+        selector.wakeup();
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (batch.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + bytes));
+            batch.flip();
+            larger.put(batch);
+            batch = larger;
+        }
+    }
+
+    static void putVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // --- Selector thread ---
+
+    @Override
+    public void run() {
+        ByteBuffer discard = ByteBuffer.allocate(256);
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Viewer viewer = (Viewer) key.attachment();
+                        if (key.isReadable()) {
+                            // Viewers send nothing; reading only tells us when they leave
+                            discard.clear();
+                            if (read(viewer, discard) < 0) {
+                                disconnect(viewer);
+                                continue;
+                            }
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(viewer);
+                        }
+                    }
+                }
+                deliver();
+            }
+        } catch (ClosedSelectorException e) {
+            // close() was called
+        } catch (IOException e) {
+            System.err.println("Spectator server stopped: " + e.getMessage());
+        }
+        for (Viewer viewer : viewers) {
+            closeQuietly(viewer.channel);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true); // Messages are batched already
+        channel.socket().setSendBufferSize(SEND_BUFFER_BYTES);
+        Viewer viewer = new Viewer(channel);
+        channel.register(selector, SelectionKey.OP_READ, viewer);
+        viewers.add(viewer);
+        viewerCount = viewers.size();
+        resynchronize();
+    }
+
+    // Hands queued messages to the viewers they are for and writes as much as each
+    // viewer's socket takes right now; the rest waits for OP_WRITE.
+    private void deliver() {
+        boolean resync = false;
+        Message message;
+        while ((message = outgoing.poll()) != null) {
+            for (Viewer viewer : viewers) {
+                boolean wanted = message.audience == EVERYONE
+                        || (message.audience == IN_SYNC) == viewer.inSync;
+                if (!wanted) {
+                    continue;
+                }
+                if (message.audience != IN_SYNC) {
+                    viewer.inSync = true;
+                } else if (viewer.backlog.size() > MAX_BACKLOG_MESSAGES) {
+                    dropBacklog(viewer);
+                    resync = true;
+                    continue;
+                }
+                viewer.backlog.add(message.data.duplicate());
+            }
+        }
+        for (int i = viewers.size() - 1; i >= 0; i--) {
+            write(viewers.get(i));
+        }
+        if (resync) {
+            resynchronize();
+        }
+    }
+
+    // Drops what a slow viewer hasn't been sent yet, apart from a message already half
+    // written, and takes it out of sync until its next keyframe.
+    private static void dropBacklog(Viewer viewer) {
+        ByteBuffer head = viewer.backlog.peek();
+        viewer.backlog.clear();
+        if (head != null && head.position() > 0) {
+            viewer.backlog.add(head);
+        }
+        viewer.inSync = false;
+    }
+
+    private void write(Viewer viewer) {
+        try {
+            ByteBuffer buffer;
+            while ((buffer = viewer.backlog.peek()) != null) {
+                bytesSent += viewer.channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break; // Socket buffer full
+                }
+                viewer.backlog.poll();
+            }
+            SelectionKey key = viewer.channel.keyFor(selector);
+            key.interestOps(viewer.backlog.isEmpty() ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            disconnect(viewer);
+        }
+    }
+
+    private int read(Viewer viewer, ByteBuffer buffer) {
+        try {
+            return viewer.channel.read(buffer);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void disconnect(Viewer viewer) {
+        if (viewers.remove(viewer)) {
+            viewerCount = viewers.size();
+            closeQuietly(viewer.channel);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Gone either way
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// SpriteCache keeps the ball, the paddle and fixed messages pre-rasterized in images
+// compatible with the screen, for the RenderQuality profiles that copy instead of drawing.
+// Copying a compatible image is a plain blit, which Java2D also caches in video memory
+// once the image has been drawn a few times unchanged. Everything is thrown away and
+// redrawn when frames go to a different screen or the profile changes. One thread only,
+// like GameRenderer.
+final class SpriteCache {
+
+    // A rendered line of text; drawn with its baseline at the y it was asked for.
+    private static final class Text {
+        final BufferedImage image;
+        final int ascent;
+
+        Text(BufferedImage image, int ascent) {
+            this.image = image;
+            this.ascent = ascent;
+        }
+    }
+
+    private GraphicsConfiguration config;
+    private RenderQuality quality;
+    private BufferedImage ball;
+    private BufferedImage paddle;
+    private final Map<Font, Map<String, Text>> texts = new HashMap<>();
+
+    // Drops every sprite if g2d draws somewhere the sprites weren't made for.
+    void validate(Graphics2D g2d, RenderQuality quality) {
+        GraphicsConfiguration gc = g2d.getDeviceConfiguration();
+        if (gc != config || quality != this.quality) {
+            flush();
+            config = gc;
+            this.quality = quality;
+        }
+    }
+
+    void drawBall(Graphics2D g2d, int x, int y, int diameter) {
+        if (ball == null || ball.getWidth() != diameter) {
+            ball = rasterize(diameter, diameter, g -> Ball.draw(g, 0, 0, diameter));
+        }
+        g2d.drawImage(ball, x, y, null);
+    }
+
+    void drawPaddle(Graphics2D g2d, int x, int y, int width, int height) {
+        if (paddle == null || paddle.getWidth() != width || paddle.getHeight() != height) {
+            paddle = rasterize(width, height, g -> Paddle.draw(g, 0, 0, width, height));
+        }
+        g2d.drawImage(paddle, x, y, null);
+    }
+
+    // Draws message in g2d's current font and color, horizontally centered on the panel.
+    // Messages are cached by font and text, so use this only for text that doesn't change
+    // from frame to frame, in a single color per font.
+    void drawCentered(Graphics2D g2d, String message, int y) {
+        Font font = g2d.getFont();
+        Map<String, Text> byText = texts.computeIfAbsent(font, f -> new HashMap<>());
+        Text text = byText.get(message);
+        if (text == null) {
+            FontMetrics fm = g2d.getFontMetrics();
+            Color color = g2d.getColor();
+            int ascent = fm.getAscent();
+            BufferedImage image = rasterize(Math.max(1, fm.stringWidth(message)), Math.max(1, fm.getHeight()), g -> {
+                g.setFont(font);
+                g.setColor(color);
+                g.drawString(message, 0, ascent);
+            });
+            text = new Text(image, ascent);
+            byText.put(message, text);
+        }
+        g2d.drawImage(text.image, (GamePanel.PANEL_WIDTH - text.image.getWidth()) / 2, y - text.ascent, null);
+    }
+
+    // Draws into a new transparent image compatible with the screen. Always translucent,
+    // even without antialiasing: on/off transparency can come back as an image type that
+    // software pipelines have no fast copy for.
+    private BufferedImage rasterize(int width, int height, Consumer<Graphics2D> painter) {
+        BufferedImage image = config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        Graphics2D g = image.createGraphics();
+        try {
+            quality.apply(g);
+            painter.accept(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private void flush() {
+        if (ball != null) {
+            ball.flush();
+            ball = null;
+        }
+        if (paddle != null) {
+            paddle.flush();
+            paddle = null;
+        }
+        for (Map<String, Text> byText : texts.values()) {
+            for (Text text : byText.values()) {
+                text.image.flush();
+            }
+        }
+        texts.clear();
+    }
+}
@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+// TournamentRunner plays bots against the game headless, on every core, for tuning
+// difficulty. Every combination of bot, ball speed-up and layout is one configuration;
+// each plays the requested number of games and is summed up as win rate, score, game
+// length and share of bricks cleared. Game n uses the same seed in every configuration,
+// so differences between configurations aren't drowned in layout luck. The seed also
+// decides where the ball starts and at what angle, so even the deterministic bots play
+// a different game every time.
+//
+// Usage: java TournamentRunner [--games=N] [--bots=follow,predict,human]
+//            [--speedups=0.1,...] [--levels=pack.brkl] [--multiball=N] [--seed=N] [--threads=N]
+// Without --levels, games use random layouts.
+public class TournamentRunner {
+
+    static final int GAMES_PER_TASK = 16; // Below this a range of games runs on one thread
+    static final long PROGRESS_INTERVAL_SECONDS = 10;
+    static final int MAX_START_OFFSET = 150; // Ball start, pixels either side of the middle
+    static final double MAX_START_ANGLE = Math.toRadians(30); // Either side of the usual 45 degrees
+
+    // One bot, speed-up and layout to play games with.
+    static final class Config {
+        final String bot;
+        final double speedUp;
+        final Level level; // null for random layouts
+
+        Config(String bot, double speedUp, Level level) {
+            this.bot = bot;
+            this.speedUp = speedUp;
+            this.level = level;
+        }
+    }
+
+    // Totals over any number of games. Each task sums its own games; results are merged.
+    static final class Stats {
+        long games, wins, timeouts;
+        long totalScore, maxScore;
+        long totalTicks;
+        double totalCleared; // Sum of the share of breakable bricks cleared per game
+
+        void add(GameSimulation simulation, int ticks, int startBricks) {
+            games++;
+            if (simulation.getOutcome() == GameSimulation.Outcome.WON) {
+                wins++;
+            } else if (simulation.getOutcome() == GameSimulation.Outcome.RUNNING) {
+                timeouts++;
+            }
+            totalScore += simulation.getScore();
+            maxScore = Math.max(maxScore, simulation.getScore());
+            totalTicks += ticks;
+            if (startBricks > 0) {
+                totalCleared += (startBricks - simulation.getBricks().liveCount()) / (double) startBricks;
+            }
+        }
+
+        void merge(Stats other) {
+            games += other.games;
+            wins += other.wins;
+            timeouts += other.timeouts;
+            totalScore += other.totalScore;
+            maxScore = Math.max(maxScore, other.maxScore);
+            totalTicks += other.totalTicks;
+            totalCleared += other.totalCleared;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        int games = 1000;
+        String[] bots = PaddleBots.NAMES;
+        double[] speedUps = {GameSimulation.SPEED_UP};
+        String levelsPath = null;
+        int multiBall = 0;
+        long seed = 1L;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--games=")) {
+                games = Integer.parseInt(value);
+            } else if (arg.startsWith("--bots=")) {
+                bots = value.split(",");
+            } else if (arg.startsWith("--speedups=")) {
+                String[] parts = value.split(",");
+                speedUps = new double[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    speedUps[i] = Double.parseDouble(parts[i]);
+                }
+            } else if (arg.startsWith("--levels=")) {
+                levelsPath = value;
+            } else if (arg.startsWith("--multiball=")) {
+                multiBall = Integer.parseInt(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value);
+            } else {
+                System.err.println("Unknown option " + arg);
+                System.exit(2);
+            }
+        }
+        for (String bot : bots) {
+            PaddleBots.create(bot, 0); // Fail on a misspelled bot before anything runs
+        }
+
+        List<Level> levels = new ArrayList<>();
+        if (levelsPath != null) {
+            LevelPack pack = LevelPack.open(Paths.get(levelsPath));
+            for (int i = 0; i < pack.size(); i++) {
+                levels.add(pack.get(i));
+            }
+        } else {
+            levels.add(null);
+        }
+        List<Config> configs = new ArrayList<>();
+        for (String bot : bots) {
+            for (double speedUp : speedUps) {
+                for (Level level : levels) {
+                    configs.add(new Config(bot, speedUp, level));
+                }
+            }
+        }
+
+        long total = (long) configs.size() * games;
+        System.out.printf("Playing %d games (%d configurations x %d) on %d threads%n",
+                total, configs.size(), games, threads);
+        LongAdder done = new LongAdder();
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ForkJoinTask<Stats[]> task = pool.submit(new Games(configs, games, multiBall, seed, 0, total, done));
+        Stats[] results;
+        while (true) {
+            try {
+                results = task.get(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                break;
+            } catch (TimeoutException e) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long finished = done.sum();
+                System.out.printf("  %d / %d games, %.0f games/s, about %.0f s to go%n", finished, total,
+                        finished / seconds, (total - finished) / Math.max(finished / seconds, 1e-9));
+            }
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%n%-8s %8s %-16s %8s %6s %9s %9s %9s %8s %8s%n", "bot", "speed-up", "layout",
+                "games", "win %", "avg score", "max score", "avg len s", "cleared%", "timeouts");
+        long totalTicks = 0;
+        for (int c = 0; c < configs.size(); c++) {
+            Config config = configs.get(c);
+            Stats stats = results[c];
+            totalTicks += stats.totalTicks;
+            System.out.printf("%-8s %8.3f %-16s %8d %6.1f %9.1f %9d %9.1f %8.1f %8d%n",
+                    config.bot, config.speedUp, config.level == null ? "random" : config.level.getName(),
+                    stats.games, 100.0 * stats.wins / stats.games, stats.totalScore / (double) stats.games,
+                    stats.maxScore, stats.totalTicks / (double) stats.games / GameSimulation.TICKS_PER_SECOND,
+                    100.0 * stats.totalCleared / stats.games, stats.timeouts);
+        }
+        System.out.printf("%nSimulated %d games, %d ticks in %.1f s (%.0f games/s, %.1f M ticks/s)%n",
+                total, totalTicks, seconds, total / seconds, totalTicks / seconds / 1e6);
+    }
+
+    // Plays games [from, to) of the flattened (configuration, game) range, splitting it in
+    // half until the pieces are small enough to run on one thread.
+    private static final class Games extends RecursiveTask<Stats[]> {
+        private static final long serialVersionUID = 1L;
+        private final List<Config> configs;
+        private final int gamesPerConfig;
+        private final int multiBall;
+        private final long seed;
+        private final long from, to;
+        private final LongAdder done;
+
+        Games(List<Config> configs, int gamesPerConfig, int multiBall, long seed, long from, long to, LongAdder done) {
+            this.configs = configs;
+            this.gamesPerConfig = gamesPerConfig;
+            this.multiBall = multiBall;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.done = done;
+        }
+
+        @Override
+        protected Stats[] compute() {
+            if (to - from > GAMES_PER_TASK) {
+                long middle = (from + to) >>> 1;
+                Games right = new Games(configs, gamesPerConfig, multiBall, seed, middle, to, done);
+                right.fork();
+                Stats[] left = new Games(configs, gamesPerConfig, multiBall, seed, from, middle, done).compute();
+                Stats[] other = right.join();
+                for (int c = 0; c < left.length; c++) {
+                    if (left[c] == null) {
+                        left[c] = other[c];
+                    } else if (other[c] != null) {
+                        left[c].merge(other[c]);
+                    }
+                }
+                return left;
+            }
+
+            Stats[] stats = new Stats[configs.size()];
+            GameClock.Manual clock = new GameClock.Manual();
+            GameSimulation simulation = new GameSimulation(seed, clock);
+            simulation.setMultiBall(multiBall);
+            Level[] loaded = new Level[1]; // The level on the simulation's layout, for restart()
+            for (long i = from; i < to; i++) {
+                int c = (int) (i / gamesPerConfig);
+                Config config = configs.get(c);
+                long gameSeed = seed + (i % gamesPerConfig) * 0x9E3779B97F4A7C15L; // Same per game number
+                if (stats[c] == null) {
+                    stats[c] = new Stats();
+                }
+                play(simulation, clock, loaded, config, gameSeed, stats[c]);
+                done.increment();
+            }
+            return stats;
+        }
+
+        private static void play(GameSimulation simulation, GameClock.Manual clock, Level[] loaded, Config config,
+                                 long gameSeed, Stats stats) {
+            clock.set(0);
+            if (config.level == null) {
+                simulation.reset(gameSeed);
+            } else if (config.level == loaded[0]) {
+                simulation.restart(gameSeed);
+            } else {
+                simulation.reset(gameSeed, config.level);
+            }
+            loaded[0] = config.level;
+            placeBall(simulation.getBall(), gameSeed);
+            simulation.setSpeedUp(config.speedUp);
+            simulation.resume();
+            PaddleController bot = PaddleBots.create(config.bot, gameSeed);
+            int startBricks = simulation.getBricks().liveCount();
+
+            int ticks = 0;
+            while (simulation.getOutcome() == GameSimulation.Outcome.RUNNING
+                    && ticks < HeadlessRunner.MAX_TICKS_PER_GAME) {
+                simulation.setPaddleDirection(bot.direction(simulation));
+                ticks++;
+                clock.set(ticks * 1000L / GameSimulation.TICKS_PER_SECOND);
+                simulation.tick();
+            }
+            stats.add(simulation, ticks, startBricks);
+        }
+
+        // Moves the ball sideways from where every game starts it and turns it by up to
+        // MAX_START_ANGLE, both from the game's seed, keeping its speed and its side. Drawn
+        // from a Random of its own so the game's random events stay those of the seed.
+        private static void placeBall(Ball ball, long gameSeed) {
+            Random random = new Random(gameSeed);
+            double x = ball.getExactX() + (random.nextDouble() * 2 - 1) * MAX_START_OFFSET;
+            double speed = Math.hypot(Ball.START_DX, Ball.START_DY);
+            double angle = Math.atan2(-Ball.START_DY, Ball.START_DX) + (random.nextDouble() * 2 - 1) * MAX_START_ANGLE;
+            ball.set(x, ball.getExactY(), speed * Math.cos(angle), -speed * Math.sin(angle));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.Random;
+
+// Brick layouts of a requested size for the benchmarks. Bricks shrink as the count grows
+// so every layout fits the top half of the play area like the real level does.
+final class BenchmarkLevels {
+
+    static final int TOP = 50;
+    static final int AREA_HEIGHT = 300;
+    static final int GAP = 1;
+
+    private BenchmarkLevels() {
+    }
+
+    static int cols(int bricks) {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(bricks * 2.0)));
+    }
+
+    static int rows(int bricks) {
+        return (bricks + cols(bricks) - 1) / cols(bricks);
+    }
+
+    static int brickWidth(int bricks) {
+        return Math.max(1, (GameSimulation.WIDTH - 20) / cols(bricks) - GAP);
+    }
+
+    static int brickHeight(int bricks) {
+        return Math.max(1, AREA_HEIGHT / rows(bricks) - GAP);
+    }
+
+    static BrickField create(int bricks, long seed) {
+        return BrickField.grid(rows(bricks), cols(bricks), 10, TOP,
+                brickWidth(bricks), brickHeight(bricks), GAP, new Random(seed));
+    }
+
+    static void resetSimulation(GameSimulation simulation, int bricks, long seed) {
+        simulation.reset(create(bricks, seed), brickWidth(bricks) + GAP, brickHeight(bricks) + GAP);
+        simulation.resume();
+    }
+}
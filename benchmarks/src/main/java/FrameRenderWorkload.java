@@ -0,0 +1,31 @@
+import breakout.bench.Workload;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Draws one in-game frame with GameRenderer into an offscreen image.
+public class FrameRenderWorkload implements Workload {
+
+    private final GameRenderer renderer = new GameRenderer();
+    private BufferedImage image;
+    private FrameSnapshot frame;
+
+    @Override
+    public void setUp(int size) {
+        image = new BufferedImage(GamePanel.PANEL_WIDTH, GamePanel.PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BrickField bricks = BenchmarkLevels.create(size, 1L);
+        frame = new FrameSnapshot(GamePanel.GameState.PLAYING, 350, 550, 390, 400, 350, 390, 400, 0L,
+                0, 0L, bricks, bricks.aliveBits(), new int[0], null);
+    }
+
+    @Override
+    public Object run() {
+        Graphics2D g2d = image.createGraphics();
+        try {
+            renderer.render(g2d, frame, 1.0);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+}
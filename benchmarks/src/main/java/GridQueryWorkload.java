@@ -0,0 +1,37 @@
+import breakout.bench.Workload;
+
+import java.util.Random;
+
+// Looks up the bricks under a ball-sized area with BrickGrid and checks for a win,
+// cycling through precomputed positions over the brick area.
+public class GridQueryWorkload implements Workload {
+
+    private static final int POSITIONS = 1024; // Power of two
+
+    private BrickField bricks;
+    private BrickGrid grid;
+    private final double[] xs = new double[POSITIONS];
+    private final double[] ys = new double[POSITIONS];
+    private final int[] candidates = new int[256];
+    private int next;
+
+    @Override
+    public void setUp(int size) {
+        bricks = BenchmarkLevels.create(size, 1L);
+        grid = new BrickGrid(bricks, BenchmarkLevels.brickWidth(size) + BenchmarkLevels.GAP,
+                BenchmarkLevels.brickHeight(size) + BenchmarkLevels.GAP);
+        Random random = new Random(2L);
+        for (int i = 0; i < POSITIONS; i++) {
+            xs[i] = random.nextDouble() * (GameSimulation.WIDTH - GameSimulation.BALL_DIAMETER);
+            ys[i] = BenchmarkLevels.TOP + random.nextDouble() * BenchmarkLevels.AREA_HEIGHT;
+        }
+    }
+
+    @Override
+    public Object run() {
+        int i = next++ & (POSITIONS - 1);
+        int count = grid.query(xs[i], ys[i], GameSimulation.BALL_DIAMETER, GameSimulation.BALL_DIAMETER, candidates);
+        boolean won = bricks.liveCount() == 0;
+        return won ? -count : count;
+    }
+}
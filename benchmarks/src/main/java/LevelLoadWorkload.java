@@ -0,0 +1,45 @@
+import breakout.bench.Workload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Opens a level pack of LEVELS levels and decodes the last one, as the game does when it
+// starts and when it moves on to a level. Every level in the pack has the requested
+// number of bricks, laid out like the other benchmarks'.
+public class LevelLoadWorkload implements Workload {
+
+    private static final int LEVELS = 100;
+
+    private Path pack;
+
+    @Override
+    public void setUp(int size) {
+        Level level = Level.encode("benchmark", BenchmarkLevels.create(size, 1L),
+                BenchmarkLevels.brickWidth(size) + BenchmarkLevels.GAP,
+                BenchmarkLevels.brickHeight(size) + BenchmarkLevels.GAP);
+        List<Level> levels = new ArrayList<>();
+        for (int i = 0; i < LEVELS; i++) {
+            levels.add(level);
+        }
+        try {
+            pack = Files.createTempFile("levels", ".brkl");
+            pack.toFile().deleteOnExit();
+            LevelPack.write(pack, levels);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object run() {
+        try {
+            return LevelPack.open(pack).get(LEVELS - 1).createField();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import breakout.bench.Workload;
+
+import java.util.Random;
+
+// Runs GameSimulation.tick() with a fixed number of multi-ball extras in play on the
+// standard 500-brick benchmark layout. Lost extras are topped up before each tick and a
+// finished game is restarted, so every tick moves the same number of balls.
+public class MultiBallTickWorkload implements Workload {
+
+    private static final int BRICKS = 500;
+
+    private final Random random = new Random(1L);
+    private GameSimulation simulation;
+    private GameClock.Manual clock;
+    private int balls;
+    private long ticks;
+
+    @Override
+    public void setUp(int size) {
+        balls = size;
+        clock = new GameClock.Manual();
+        simulation = new GameSimulation(1L, clock);
+        BenchmarkLevels.resetSimulation(simulation, BRICKS, 1L);
+    }
+
+    @Override
+    public Object run() {
+        BallSwarm extraBalls = simulation.getExtraBalls();
+        while (extraBalls.size() < balls) {
+            double angle = Math.toRadians(-150 + random.nextDouble() * 120);
+            extraBalls.add(random.nextInt(GameSimulation.WIDTH - 40) + 20, GameSimulation.HEIGHT - 200,
+                    Math.cos(angle) * 5, Math.sin(angle) * 5);
+        }
+
+        clock.set(++ticks * 1000L / GameSimulation.TICKS_PER_SECOND);
+        if (simulation.tick() != GameSimulation.Outcome.RUNNING) {
+            BenchmarkLevels.resetSimulation(simulation, BRICKS, 1L);
+        }
+        return extraBalls;
+    }
+}
@@ -0,0 +1,29 @@
+import breakout.bench.Workload;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Paints a whole GamePanel (standard level, paused screen) into an offscreen image.
+public class PanelPaintWorkload implements Workload {
+
+    private GamePanel panel;
+    private BufferedImage image;
+
+    @Override
+    public void setUp(int size) {
+        panel = new GamePanel(null, RenderMode.PASSIVE, new AssetManager(AssetManager.DEFAULT_CACHE_BYTES));
+        panel.setSize(GamePanel.PANEL_WIDTH, GamePanel.PANEL_HEIGHT);
+        image = new BufferedImage(GamePanel.PANEL_WIDTH, GamePanel.PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Override
+    public Object run() {
+        Graphics2D g2d = image.createGraphics();
+        try {
+            panel.paint(g2d);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,33 @@
+import breakout.bench.Workload;
+
+// Runs GameSimulation.tick() with the paddle following the ball, so games last long
+// enough to measure. A finished game is restarted on the same layout.
+public class SimulationTickWorkload implements Workload {
+
+    private GameSimulation simulation;
+    private GameClock.Manual clock;
+    private int bricks;
+    private long ticks;
+
+    @Override
+    public void setUp(int size) {
+        bricks = size;
+        clock = new GameClock.Manual();
+        simulation = new GameSimulation(1L, clock);
+        BenchmarkLevels.resetSimulation(simulation, bricks, 1L);
+    }
+
+    @Override
+    public Object run() {
+        Paddle paddle = simulation.getPaddle();
+        Ball ball = simulation.getBall();
+        double offset = (ball.getExactX() + ball.diameter / 2.0) - (paddle.getX() + paddle.getWidth() / 2.0);
+        simulation.setPaddleDirection(Math.abs(offset) < 10 ? 0 : (int) Math.signum(offset));
+
+        clock.set(++ticks * 1000L / GameSimulation.TICKS_PER_SECOND);
+        if (simulation.tick() != GameSimulation.Outcome.RUNNING) {
+            BenchmarkLevels.resetSimulation(simulation, bricks, 1L);
+        }
+        return ball;
+    }
+}
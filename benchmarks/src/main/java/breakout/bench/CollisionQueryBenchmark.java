@@ -0,0 +1,31 @@
+package breakout.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Broad-phase brick lookup for a ball-sized area plus the win check, the two per-tick
+// queries that used to scan every brick.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionQueryBenchmark {
+
+    @Param({"50", "500", "5000"})
+    int bricks;
+
+    private Workload query;
+
+    @Setup
+    public void setUp() {
+        query = Workload.load("GridQueryWorkload", bricks);
+    }
+
+    @Benchmark
+    public Object queryAndCheckWin() {
+        return query.run();
+    }
+}
@@ -0,0 +1,30 @@
+package breakout.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Opening a level pack and decoding one of its levels, for increasingly large levels.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelLoadBenchmark {
+
+    @Param({"50", "500", "5000"})
+    int bricks;
+
+    private Workload load;
+
+    @Setup
+    public void setUp() {
+        load = Workload.load("LevelLoadWorkload", bricks);
+    }
+
+    @Benchmark
+    public Object openAndDecode() {
+        return load.run();
+    }
+}
@@ -0,0 +1,30 @@
+package breakout.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One simulation tick with increasingly many multi-ball extras in play.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiBallBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int balls;
+
+    private Workload tick;
+
+    @Setup
+    public void setUp() {
+        tick = Workload.load("MultiBallTickWorkload", balls);
+    }
+
+    @Benchmark
+    public Object tick() {
+        return tick.run();
+    }
+}
@@ -0,0 +1,27 @@
+package breakout.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// A full GamePanel paint into a BufferedImage, as Swing would do it, for the standard level.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PanelPaintBenchmark {
+
+    private Workload paint;
+
+    @Setup
+    public void setUp() {
+        paint = Workload.load("PanelPaintWorkload", 0);
+    }
+
+    @Benchmark
+    public Object paintPanel() {
+        return paint.run();
+    }
+}
@@ -0,0 +1,31 @@
+package breakout.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One simulation tick (paddle move, swept ball movement and collision resolution)
+// for increasingly large brick fields.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+
+    @Param({"50", "500", "5000"})
+    int bricks;
+
+    private Workload tick;
+
+    @Setup
+    public void setUp() {
+        tick = Workload.load("SimulationTickWorkload", bricks);
+    }
+
+    @Benchmark
+    public Object tick() {
+        return tick.run();
+    }
+}
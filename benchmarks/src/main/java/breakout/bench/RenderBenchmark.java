@@ -0,0 +1,35 @@
+package breakout.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Offscreen rendering of one frame through GameRenderer into a BufferedImage,
+// for increasingly large brick fields and each render quality profile.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    @Param({"50", "500", "5000"})
+    int bricks;
+
+    @Param({"quality", "balanced", "performance"})
+    String quality;
+
+    private Workload frame;
+
+    @Setup
+    public void setUp() {
+        System.setProperty("breakout.quality", quality); // Read by GameRenderer when created
+        frame = Workload.load("FrameRenderWorkload", bricks);
+    }
+
+    @Benchmark
+    public Object renderFrame() {
+        return frame.run();
+    }
+}
@@ -0,0 +1,24 @@
+package breakout.bench;
+
+// A piece of game code to measure.
+// JMH needs benchmarks in a named package, but the game lives in the default package,
+// which a named package cannot import. So each workload is written in the default
+// package and the benchmarks load it by name and call it through this interface.
+public interface Workload {
+
+    // Builds the state to measure; size is the benchmark's brick count parameter.
+    void setUp(int size);
+
+    // One measured operation. The result is returned so JMH can consume it.
+    Object run();
+
+    static Workload load(String className, int size) {
+        try {
+            Workload workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+            workload.setUp(size);
+            return workload;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " + className, e);
+        }
+    }
+}